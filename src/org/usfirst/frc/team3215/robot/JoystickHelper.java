@@ -2,10 +2,7 @@ package org.usfirst.frc.team3215.robot;
 
 import org.usfirst.frc.team3215.robot.config.RobotHardware;
 import org.usfirst.frc.team3215.robot.libraries.AnglesHelper;
-
-import edu.wpi.first.wpilibj.GenericHID.Hand;
-import edu.wpi.first.wpilibj.GenericHID.RumbleType;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import org.usfirst.frc.team3215.robot.libraries.ImuSnapshot;
 
 public class JoystickHelper {
 
@@ -14,10 +11,8 @@ public class JoystickHelper {
 	public JoystickHelper(RobotHardware r) {
 		this.r = r;
 
-		r.joystick0().setRumble(RumbleType.kLeftRumble, 0);
-		r.joystick0().setRumble(RumbleType.kRightRumble, 0);
-		r.joystick1().setRumble(RumbleType.kLeftRumble, 0);
-		r.joystick1().setRumble(RumbleType.kRightRumble, 0);
+		r.joystick0().setRumble(0, 0);
+		r.joystick1().setRumble(0, 0);
 	}
 
 	private double targetDriveDirection;
@@ -30,6 +25,7 @@ public class JoystickHelper {
 	private final static double FAST_FACTOR = 1.;
 	private final static double TRIGGER_SCALING_FACTOR = 15;
 	private boolean turnAsYouGo = true;
+	private final ImuSnapshot imuSnapshot = new ImuSnapshot(); // IMU values for the current frame
 
 	private final static double RAD_TO_DEGREES = 180. / Math.PI;
 
@@ -128,6 +124,9 @@ public class JoystickHelper {
 	 */
 	public void read() {
 
+		// (0) one consistent set of IMU values for this frame
+		r.imu().readSnapshot(imuSnapshot);
+
 		// (1) determine target drive direction and drive speed
 
 		double joy0x = r.joystick0().getRawAxis(AXIS_LEFT_X);
@@ -177,11 +176,11 @@ public class JoystickHelper {
 		} else if (r.joystick0().getPOV() >= 0) {
 
 			double povAngle = 360. - r.joystick0().getPOV();
-			targetDriveDirection = r.imu().getHeadingBestTwoOfThree() + povAngle;
+			targetDriveDirection = imuSnapshot.headingBestTwoOfThree + povAngle;
 			driveSpeed = 1. / speedFactor;
 		} else if (joy1speed > JOY_THRESHOLD) {
 
-			targetDriveDirection = r.imu().getHeadingBestTwoOfThree() + joy1angle;
+			targetDriveDirection = imuSnapshot.headingBestTwoOfThree + joy1angle;
 			driveSpeed = joy1speed / SLOW_FACTOR;
 		} else {
 			driveSpeed = 0;
@@ -199,15 +198,15 @@ public class JoystickHelper {
 			turnSpeed = joy0speed / speedFactor;
 		} else if ((joy0leftTrigger > JOY_THRESHOLD) || (joy0rightTrigger > JOY_THRESHOLD)) {
 
-			targetOrientationAngle = r.imu().getHeadingBestTwoOfThree() + effectiveTrigger * TRIGGER_SCALING_FACTOR;
+			targetOrientationAngle = imuSnapshot.headingBestTwoOfThree + effectiveTrigger * TRIGGER_SCALING_FACTOR;
 			turnSpeed = Math.abs(effectiveTrigger);
 		} else if (Math.abs(joy1rightX) > JOY_THRESHOLD) {
 
-			targetOrientationAngle = r.imu().getHeadingBestTwoOfThree() - joy1rightX * TRIGGER_SCALING_FACTOR;
+			targetOrientationAngle = imuSnapshot.headingBestTwoOfThree - joy1rightX * TRIGGER_SCALING_FACTOR;
 			turnSpeed = Math.abs(joy1rightX);
 		} else {
 			
-			targetOrientationAngle = r.imu().getHeadingMvgAvg90();
+			targetOrientationAngle = imuSnapshot.headingMvgAvg90;
 			turnSpeed = driveSpeed;
 				// if the robot is driving (in robot orientation) try to hold the orientation
 		}
@@ -240,11 +239,11 @@ public class JoystickHelper {
 		targetOrientationAngle = AnglesHelper.getPlainAngle(targetOrientationAngle);
 
 		// (5) all done - put values on dashboard for troubleshooting
-		SmartDashboard.putNumber("targetDriveDirection", ((int) (100 * targetDriveDirection)) / 100.);
-		SmartDashboard.putNumber("driveSpeed", ((int) (100 * driveSpeed)) / 100.);
-		SmartDashboard.putNumber("targetOrientationAngle", ((int) (100 * targetOrientationAngle)) / 100.);
-		SmartDashboard.putNumber("turnSpeed", ((int) (100 * turnSpeed)) / 100.);
-		SmartDashboard.putBoolean("turnAsYouGo", turnAsYouGo);
+		r.dashboard().putNumber("targetDriveDirection", ((int) (100 * targetDriveDirection)) / 100.);
+		r.dashboard().putNumber("driveSpeed", ((int) (100 * driveSpeed)) / 100.);
+		r.dashboard().putNumber("targetOrientationAngle", ((int) (100 * targetOrientationAngle)) / 100.);
+		r.dashboard().putNumber("turnSpeed", ((int) (100 * turnSpeed)) / 100.);
+		r.dashboard().putBoolean("turnAsYouGo", turnAsYouGo);
 	}
 
 	/**
@@ -3,14 +3,11 @@ package org.usfirst.frc.team3215.robot;
 import java.util.ArrayList;
 
 import org.usfirst.frc.team3215.robot.config.RobotHardware;
+import org.usfirst.frc.team3215.robot.hal.MecanumOutput;
+import org.usfirst.frc.team3215.robot.hal.MotorPort;
+import org.usfirst.frc.team3215.robot.hal.Platform;
 import org.usfirst.frc.team3215.robot.libraries.AnglesHelper;
 
-import edu.wpi.first.wpilibj.Spark;
-import edu.wpi.first.wpilibj.SpeedController;
-import edu.wpi.first.wpilibj.Victor;
-import edu.wpi.first.wpilibj.drive.MecanumDrive;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-
 /**
  * All functions to drive the motors.
  */
@@ -28,24 +25,30 @@ public class MotorHelper {
 	private final RobotHardware r;
 
 	// 10 motor controllers
-	private ArrayList<SpeedController> motors = new ArrayList<SpeedController>(10);
+	private ArrayList<MotorPort> motors = new ArrayList<MotorPort>(10);
 	private double previousSpeed[] = new double[10];
+	// most recent drive() command (for the black box recorder)
+	private double lastTargetDriveDirection;
+	private double lastDriveSpeed;
+	private double lastTargetOrientationAngle;
+	private double lastTurnSpeed;
 	// reference to FRC mecanum wheel library
-	private MecanumDrive mecanumDrive;
+	private MecanumOutput mecanumDrive;
 
 	public MotorHelper(RobotHardware r) {
 		this.r = r;
 
 		// initialize motors
+		Platform platform = r.platform();
 
-		motors.add(0, new Spark(0)); // Front-left Mecanum connected to PWM port 0
-		motors.add(1, new Spark(1)); // Rear-left Mecanum connected to PWM port 1
-		motors.add(2, new Spark(2)); // Front-right Mecanum connected to PWM port 2
-		motors.add(3, new Spark(3)); // Rear-right Mecanum connected to PWM port 3
-		motors.add(4, new Victor(4));
-		motors.add(5, new Victor(5));
-		motors.add(6, new Victor(6));
-		motors.add(7, new Victor(7));
+		motors.add(0, platform.spark(0)); // Front-left Mecanum connected to PWM port 0
+		motors.add(1, platform.spark(1)); // Rear-left Mecanum connected to PWM port 1
+		motors.add(2, platform.spark(2)); // Front-right Mecanum connected to PWM port 2
+		motors.add(3, platform.spark(3)); // Rear-right Mecanum connected to PWM port 3
+		motors.add(4, platform.victor(4));
+		motors.add(5, platform.victor(5));
+		motors.add(6, platform.victor(6));
+		motors.add(7, platform.victor(7));
 
 		// initialize Mecanum library
 		// argument order: frontLeft, rearLeft, frontRight, rearRight
@@ -53,16 +56,17 @@ public class MotorHelper {
 		motors.get(1).setInverted(false);
 		motors.get(2).setInverted(false);
 		motors.get(3).setInverted(false);
-		mecanumDrive = new MecanumDrive(motors.get(0), motors.get(1), motors.get(2), motors.get(3));
+		mecanumDrive = platform.mecanumDrive(motors.get(0), motors.get(1), motors.get(2), motors.get(3));
 	}
 
 	/**
 	 * Helper to force stop all motors now.
 	 */
 	public void hardStopAllMotors() {
-		for (SpeedController thisMotor : motors) {
+		for (MotorPort thisMotor : motors) {
 			thisMotor.stopMotor();
 		}
+		r.pose().setCommand(0, 0, 0);
 	}
 
 	/**
@@ -112,6 +116,11 @@ public class MotorHelper {
 	 */
 	public void drive(double targetDriveDirection, double driveSpeed, double targetOrientationAngle, double turnSpeed) {
 
+		lastTargetDriveDirection = targetDriveDirection;
+		lastDriveSpeed = driveSpeed;
+		lastTargetOrientationAngle = targetOrientationAngle;
+		lastTurnSpeed = turnSpeed;
+
 		double currentAngle = r.imu().getHeadingBestTwoOfThree();
 		double angleDifference = AnglesHelper.getAngleDifference(currentAngle, targetOrientationAngle);
 		double effectiveTurnSpeed;
@@ -144,13 +153,14 @@ public class MotorHelper {
 
 		// Maybe implement check to prevent motor brownout
 
-		SmartDashboard.putNumber("mech_targetDriveDirection", ((int) (100 * targetDriveDirection)) / 100.);
-		SmartDashboard.putNumber("mech_targetOrientationAngle", ((int) (100 * targetOrientationAngle)) / 100.);
-		SmartDashboard.putNumber("mech_driveSpeed", ((int) (100 * driveSpeed)) / 100.);
-		SmartDashboard.putNumber("mech_turnSpeed", ((int) (100 * turnSpeed)) / 100.);
-		SmartDashboard.putNumber("mech_effectiveTurnSpeed", ((int) (100 * effectiveTurnSpeed)) / 100.);
+		r.dashboard().putNumber("mech_targetDriveDirection", ((int) (100 * targetDriveDirection)) / 100.);
+		r.dashboard().putNumber("mech_targetOrientationAngle", ((int) (100 * targetOrientationAngle)) / 100.);
+		r.dashboard().putNumber("mech_driveSpeed", ((int) (100 * driveSpeed)) / 100.);
+		r.dashboard().putNumber("mech_turnSpeed", ((int) (100 * turnSpeed)) / 100.);
+		r.dashboard().putNumber("mech_effectiveTurnSpeed", ((int) (100 * effectiveTurnSpeed)) / 100.);
 
 		mecanumDrive.drivePolar(driveSpeed, robotDriveDirection, -effectiveTurnSpeed);
+		r.pose().setCommand(driveSpeed, robotDriveDirection, -effectiveTurnSpeed);
 	}
 
 	/**
@@ -217,4 +227,39 @@ public class MotorHelper {
 
 	}
 
+	/**
+	 * The current output of the given motor controller, between -1. and 1.
+	 */
+	public double getOutput(int motorNumber) {
+		return motors.get(motorNumber).get();
+	}
+
+	/**
+	 * Drive direction of the most recent drive() call.
+	 */
+	public double getTargetDriveDirection() {
+		return lastTargetDriveDirection;
+	}
+
+	/**
+	 * Drive speed of the most recent drive() call.
+	 */
+	public double getDriveSpeed() {
+		return lastDriveSpeed;
+	}
+
+	/**
+	 * Orientation angle of the most recent drive() call.
+	 */
+	public double getTargetOrientationAngle() {
+		return lastTargetOrientationAngle;
+	}
+
+	/**
+	 * Turn speed of the most recent drive() call.
+	 */
+	public double getTurnSpeed() {
+		return lastTurnSpeed;
+	}
+
 }
@@ -0,0 +1,183 @@
+package org.usfirst.frc.team3215.robot;
+
+import org.usfirst.frc.team3215.robot.config.RobotHardware;
+import org.usfirst.frc.team3215.robot.hal.Platform;
+import org.usfirst.frc.team3215.robot.libraries.BlackBoxRecorder;
+import org.usfirst.frc.team3215.robot.libraries.DiagnosticLightHelper;
+import org.usfirst.frc.team3215.robot.libraries.FramerateHelper;
+import org.usfirst.frc.team3215.robot.worker.AutonomousWorker;
+import org.usfirst.frc.team3215.robot.worker.TeleopWorker;
+
+/**
+ * The robot program (see Robot for how it runs on the roboRIO). Runs the same
+ * on any Platform, e.g. a SimulatedPlatform in a desktop JVM.
+ */
+public class RobotCore {
+
+	private final static String LOG_INIT = "==================== ";
+	private final static String LOG_INIT_FINISHED = ".   .   .   .   .   .";
+
+	private final RobotHardware r;
+	private AutonomousWorker autonomous = null;
+	private TeleopWorker teleop = null;
+	private final FramerateHelper frames;
+
+	private boolean imuZeroHeadingCalibrationIsReset = false;
+	private int blackBoxMode = BlackBoxRecorder.MODE_DISABLED;
+
+	public RobotCore(Platform platform) {
+		r = new RobotHardware(platform);
+		frames = new FramerateHelper(r);
+	}
+
+	/**
+	 * The robot hardware (e.g. for a simulation to look at).
+	 */
+	public RobotHardware hardware() {
+		return r;
+	}
+
+	/**
+	 * The autonomous worker (null before robotInit).
+	 */
+	public AutonomousWorker autonomous() {
+		return autonomous;
+	}
+
+	// =================================
+	// GLOBAL
+	// =================================
+
+	public void robotInit() {
+		r.logResetTimer();
+		r.logResetLogOnceMessages();
+		r.log(LOG_INIT + "robotInit()");
+
+		// master initialization of robot hardware and sensors
+		r.init();
+		r.motors().hardStopAllMotors();
+		r.imu().resetZeroHeadingCalibration();
+		imuZeroHeadingCalibrationIsReset = true;
+
+		// compile the autonomous plans now, rather than when the match starts
+		autonomous = new AutonomousWorker(r);
+		autonomous.loadPlans();
+
+		// one short light, indicates that the program has started but is not (yet)
+		// communicating with a driver station
+		r.setDiagnosticLights(DiagnosticLightHelper.ROBOT_INIT_SHORT, 0);
+
+		r.log(LOG_INIT_FINISHED + "robotInit() finished.");
+	}
+
+	public void robotPeriodic() {
+		r.logOnce(LOG_INIT + "robotPeriodic() started the first time.");
+
+		// called every loop after the mode specific periodic function
+		if (blackBoxMode == BlackBoxRecorder.MODE_AUTONOMOUS && autonomous != null) {
+			r.recordBlackBoxFrame(blackBoxMode, autonomous.getCurrentActionNumber(),
+					autonomous.getCurrentActionType());
+		} else {
+			r.recordBlackBoxFrame(blackBoxMode, -1, -1);
+		}
+	}
+
+	public void disabledInit() {
+		r.log(LOG_INIT + "disabledInit()");
+		blackBoxMode = BlackBoxRecorder.MODE_DISABLED;
+
+		// execution (autonomous, test, or teleop) has been stopped
+		r.logResetLogOnceMessages();
+		r.motors().hardStopAllMotors();
+
+		// two short lights, indicates that the program is started, communicating with a
+		// driver station, and idling OK
+		r.setDiagnosticLights(DiagnosticLightHelper.ROBOT_DISABLED_SHORT, 0);
+
+		r.log(LOG_INIT_FINISHED + "disabledInit() finished.");
+	}
+
+	public void disabledPeriodic() {
+		r.logOnce(LOG_INIT + "disabledPeriodic() started the first time.");
+
+		// the robot is standing still: a good time to save the IMU calibration;
+		// reading it restarts the IMU fusion, so only before the first enable (the
+		// heading is zeroed then)
+		if (imuZeroHeadingCalibrationIsReset) {
+			r.saveImuCalibration();
+		}
+
+		// the game data may arrive any time before autonomous starts
+		autonomous.pollGameData();
+	}
+
+	// =================================
+	// AUTONOMOUS
+	// =================================
+
+	public void autonomousInit() {
+		r.logResetTimer();
+		r.log(LOG_INIT + "autonomousInit()");
+		blackBoxMode = BlackBoxRecorder.MODE_AUTONOMOUS;
+
+		if (imuZeroHeadingCalibrationIsReset) {
+			r.log("calibrating IMU zero degree heading to: ", r.imu().getHeadingMvgAvg90());
+			r.imu().calibrateZeroHeading();
+			imuZeroHeadingCalibrationIsReset = false;
+		} else {
+			r.log("IMU already calibrated, continue using existing calibration");
+		}
+
+		autonomous.init();
+
+		r.setDiagnosticLights(DiagnosticLightHelper.ROBOT_AUTONOMOUS_SHORT, 0); // 3 short lights; autonomous has
+																				// initialized
+
+		r.log(LOG_INIT_FINISHED + "autonomousInit() finished.");
+	}
+
+	public void autonomousPeriodic() {
+		r.logOnce(LOG_INIT + "autonomousPeriodic() started the first time.");
+		if (frames.run()) {
+			autonomous.periodic();
+		}
+
+	}
+
+	// =================================
+	// TELEOP
+	// =================================
+
+	public void teleopInit() {
+		r.logResetTimer();
+		r.log(LOG_INIT + "teleopInit()");
+		blackBoxMode = BlackBoxRecorder.MODE_TELEOP;
+
+		if (imuZeroHeadingCalibrationIsReset) {
+			r.log("calibrating IMU zero degree heading to: ", r.imu().getHeadingMvgAvg90());
+			r.imu().calibrateZeroHeading();
+			imuZeroHeadingCalibrationIsReset = false;
+		} else {
+			r.log("IMU already calibrated, continue using existing calibration");
+		}
+
+		teleop = new TeleopWorker(r);
+		teleop.init();
+
+		r.setDiagnosticLights(DiagnosticLightHelper.ROBOT_TELEOP_SHORT, 0); // 4 short lights; teleop is initialized
+
+		r.log(LOG_INIT_FINISHED + "teleopInit() finished.");
+	}
+
+	public void teleopPeriodic() {
+		r.logOnce(LOG_INIT + "teleopPeriodic() started the first time.");
+
+		if (frames.run()) {
+			r.logOnce("First frame run");
+
+			teleop.periodic();
+		}
+
+	}
+
+}
\ No newline at end of file
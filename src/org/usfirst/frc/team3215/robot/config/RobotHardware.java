@@ -1,17 +1,25 @@
 package org.usfirst.frc.team3215.robot.config;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
 import org.usfirst.frc.team3215.robot.MotorHelper;
+import org.usfirst.frc.team3215.robot.hal.CameraPort;
+import org.usfirst.frc.team3215.robot.hal.Chooser;
+import org.usfirst.frc.team3215.robot.hal.Dashboard;
+import org.usfirst.frc.team3215.robot.hal.DigitalOutputPort;
+import org.usfirst.frc.team3215.robot.hal.HidInput;
+import org.usfirst.frc.team3215.robot.hal.Platform;
 import org.usfirst.frc.team3215.robot.libraries.BNO055;
+import org.usfirst.frc.team3215.robot.libraries.BlackBoxRecorder;
 import org.usfirst.frc.team3215.robot.libraries.DiagnosticLightHelper;
+import org.usfirst.frc.team3215.robot.libraries.ExceptionHelper;
 import org.usfirst.frc.team3215.robot.libraries.ImuThread;
 import org.usfirst.frc.team3215.robot.libraries.LogHelper;
-
-import edu.wpi.cscore.UsbCamera;
-import edu.wpi.first.wpilibj.CameraServer;
-import edu.wpi.first.wpilibj.DigitalOutput;
-import edu.wpi.first.wpilibj.Joystick;
-import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import org.usfirst.frc.team3215.robot.libraries.PoseEstimator;
 
 /**
  * This class holds hardware information for the robot, to be used in all stages
@@ -19,42 +27,60 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
  * periodic).
  * 
  * For motors, see MotorHelper.java
+ * 
+ * All hardware comes from the given Platform (see the hal package), so the
+ * robot code also runs off the roboRIO.
  */
 public class RobotHardware {
 
 	private boolean robotHardwareIsInitialized = false;
+	private final Platform platform;
 
 	// Constants
 	private final static int CAMERA_RESOLUTION_X = 640;
 	private final static int CAMERA_RESOLUTION_Y = 480;
 	private final static int CAMERA_EXPOSURE_DEFAULT = 75;
+	private final static String BLACK_BOX_DIRECTORY = "blackbox"; // in the platform data directory
+	private final static String IMU_CALIBRATION_FILE = "bno055_calibration.bin"; // in the platform data directory
 
 	// Motors (see MotorHelper.java for motor-specific functionality)
 	private MotorHelper motors;
 		
 	// Joysticks
-	private Joystick joystick0 = new Joystick(0);
-	private Joystick joystick1 = new Joystick(1);
+	private final HidInput joystick0;
+	private final HidInput joystick1;
 
 	// diagnostic light (on/off) on DIO port 0
-	DigitalOutput diagnosticLight = new DigitalOutput(0);
+	private final DigitalOutputPort diagnosticLight;
 
 	// camera, sensors
-	UsbCamera usbCamera;
+	private CameraPort usbCamera;
 	private BNO055 imu;
 	private ImuThread imuThread;
+	private boolean imuCalibrationRequested = false;
+	private boolean imuCalibrationSaved = false;
+	private final PoseEstimator pose = new PoseEstimator();
 
 	// the chooser as shown on the SmartDashboard
-	private SendableChooser<AutonomousModes> autonomousChooser;
+	private Chooser<AutonomousModes> autonomousChooser;
 
 	// other
-	private LogHelper logHelper = new LogHelper();
+	private final LogHelper logHelper;
 	private DiagnosticLightHelper diagnosticHelper;
+	private BlackBoxRecorder blackBox;
+
+	public RobotHardware(Platform platform) {
+		this.platform = platform;
+		logHelper = new LogHelper(platform.getLogOutput());
+		joystick0 = platform.joystick(0);
+		joystick1 = platform.joystick(1);
+		diagnosticLight = platform.digitalOutput(0);
+	}
 
 	// one-time initialization - must restart program in order to force another
 	// initialization
 	public void init() {
-		System.out.println("RobotHardware.init()");
+		log("RobotHardware.init()");
 
 		if (!robotHardwareIsInitialized) {
 			synchronized (this) {
@@ -62,7 +88,7 @@ public class RobotHardware {
 
 					// create the autonomous select values and put them on the dashboard
 					log("RobotHardware.init() - put autonomous choices to dashboard");
-					autonomousChooser = new SendableChooser<>();
+					autonomousChooser = platform.chooser();
 
 					for (AutonomousModes thisMode : AutonomousModes.values()) {
 						if (thisMode == AutonomousModes.NOTHING) {
@@ -72,31 +98,46 @@ public class RobotHardware {
 						}
 					}
 
-					SmartDashboard.putData("Autonomous", autonomousChooser);
+					platform.dashboard().putChooser("Autonomous", autonomousChooser);
 
 					// initialize the camera
 					log("RobotHardware.init() - initialize USB camera");
-					usbCamera = CameraServer.getInstance().startAutomaticCapture();
+					usbCamera = platform.camera();
 					usbCamera.setResolution(CAMERA_RESOLUTION_X, CAMERA_RESOLUTION_Y);
 					usbCamera.setExposureManual(CAMERA_EXPOSURE_DEFAULT);
 
 					// kick off IMU initialization (will complete later)
 					log("RobotHardware.init() - initialize IMU");
-					imu = BNO055.getInstance(BNO055.opmode_t.OPERATION_MODE_IMUPLUS, BNO055.vector_type_t.VECTOR_EULER);
-					imuThread = new ImuThread(logHelper, imu);
-					imuThread.setDaemon(true);
-					imuThread.start();
+					imu = new BNO055(platform.imuBus(BNO055.BNO055_ADDRESS_A), platform.clock(),
+							BNO055.opmode_t.OPERATION_MODE_IMUPLUS, BNO055.vector_type_t.VECTOR_EULER);
+					imu.setBurstMode(true); // heading, gyro rate and calibration status in one read
+					imu.setCalibrationProfile(loadImuCalibration());
+					imuThread = new ImuThread(logHelper, imu, platform.dashboard(), pose);
+					if (platform.isRealtime()) {
+						imu.start();
+						imuThread.setDaemon(true);
+						imuThread.start();
+					}
 
 					// kick off the diagnostic helper (light)
 					log("RobotHardware.init() - initialize diagnostic light");
 					diagnosticHelper = new DiagnosticLightHelper(this);
-					diagnosticHelper.setDaemon(true);
-					diagnosticHelper.start();
+					if (platform.isRealtime()) {
+						diagnosticHelper.setDaemon(true);
+						diagnosticHelper.start();
+					}
 
 					// initialize motors
 					log("RobotHardware.init() - initialize motors");
 					motors = new MotorHelper(this);
 
+					// start recording
+					log("RobotHardware.init() - initialize black box recorder");
+					if (platform.getDataDirectory() != null) {
+						blackBox = new BlackBoxRecorder(this,
+								Paths.get(platform.getDataDirectory(), BLACK_BOX_DIRECTORY).toString());
+					}
+
 					// all done!
 					robotHardwareIsInitialized = true;
 
@@ -107,6 +148,15 @@ public class RobotHardware {
 
 	}
 
+	/**
+	 * Without realtime threads (see Platform.isRealtime), whoever steps the clock
+	 * calls this once per step to update the IMU.
+	 */
+	public void pollSensors() {
+		imu.poll();
+		imuThread.poll();
+	}
+
 	// accessors
 
 	/**
@@ -124,13 +174,63 @@ public class RobotHardware {
 	}
 
 	/**
-	 * Once initialized, returns IMU calibration data.
+	 * Reads the IMU calibration profile saved by a previous run, or returns null
+	 * if there is none.
 	 */
-	public BNO055.CalData imuCalibration() {
-		if (!isImuInitialized()) {
+	private byte[] loadImuCalibration() {
+		if (platform.getDataDirectory() == null) {
+			return null;
+		}
+		try {
+			Path file = Paths.get(platform.getDataDirectory(), IMU_CALIBRATION_FILE);
+			if (!Files.exists(file)) {
+				log("no saved IMU calibration, the IMU will calibrate from scratch");
+				return null;
+			}
+			byte[] profile = Files.readAllBytes(file);
+			if (profile.length != BNO055.CALIBRATION_PROFILE_LENGTH) {
+				log("Warning: ignoring IMU calibration file of unexpected size ", profile.length);
+				return null;
+			}
+			log("restoring saved IMU calibration");
+			return profile;
+		} catch (IOException | RuntimeException e) {
+			log(ExceptionHelper.getString(e));
 			return null;
-		} else {
-			return imu.getCalibration();
+		}
+	}
+
+	/**
+	 * Once the IMU is fully calibrated, reads its calibration profile and saves it
+	 * for the next start (once per run). Call periodically, and only while the
+	 * robot is disabled, before it was first enabled (see
+	 * BNO055.requestCalibrationProfile).
+	 */
+	public void saveImuCalibration() {
+		if (imuCalibrationSaved || imuThread == null || !imuThread.getImuIsCalibrated()
+				|| platform.getDataDirectory() == null) {
+			return;
+		}
+		if (!imuCalibrationRequested) {
+			imu.requestCalibrationProfile();
+			imuCalibrationRequested = true;
+			return;
+		}
+
+		byte[] profile = new byte[BNO055.CALIBRATION_PROFILE_LENGTH];
+		if (!imu.getCalibrationProfile(profile)) {
+			return; // not read yet
+		}
+		imuCalibrationSaved = true;
+		try {
+			// write to a temporary file first so a brown-out can't leave half a file
+			Path file = Paths.get(platform.getDataDirectory(), IMU_CALIBRATION_FILE);
+			Path temporaryFile = Paths.get(platform.getDataDirectory(), IMU_CALIBRATION_FILE + ".tmp");
+			Files.write(temporaryFile, profile);
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			log("saved IMU calibration to " + file);
+		} catch (IOException | RuntimeException e) {
+			log(ExceptionHelper.getString(e));
 		}
 	}
 
@@ -141,26 +241,70 @@ public class RobotHardware {
 		return imuThread;
 	}
 
-	public Joystick joystick0() {
+	/**
+	 * Where the robot is on the field (dead reckoning, see PoseEstimator), kept
+	 * up to date by the IMU thread.
+	 */
+	public PoseEstimator pose() {
+		return pose;
+	}
+
+	public HidInput joystick0() {
 		return joystick0;
 	}
 
-	public Joystick joystick1() {
+	public HidInput joystick1() {
 		return joystick1;
 	}
 
-	public UsbCamera usbCamera() {
+	public CameraPort usbCamera() {
 		return usbCamera;
 	}
 
+	public Platform platform() {
+		return platform;
+	}
+
+	public Dashboard dashboard() {
+		return platform.dashboard();
+	}
+
+	/**
+	 * The current time in milliseconds, from the platform clock (use this rather
+	 * than System.currentTimeMillis, so simulations can run faster than real
+	 * time).
+	 */
+	public long timeMillis() {
+		return (long) (platform.clock().getTimestamp() * 1000.);
+	}
+
+	/**
+	 * The game specific message from the field (see AutonomousWorker).
+	 */
+	public String gameSpecificMessage() {
+		return platform.getGameSpecificMessage();
+	}
+
 	public void log(String message) {
 		logHelper.print(message);
 	}
 
+	public void log(String message, long value) {
+		logHelper.print(message, value);
+	}
+
+	public void log(String message, double value) {
+		logHelper.print(message, value);
+	}
+
 	public void logOnce(String message) {
 		logHelper.printOnce(message);
 	}
 
+	public void logOnce(String message, long value) {
+		logHelper.printOnce(message, value);
+	}
+
 	public void logResetTimer() {
 		logHelper.resetTimer();
 	}
@@ -173,6 +317,15 @@ public class RobotHardware {
 		return motors;
 	}
 
+	/**
+	 * Record one black box frame (see BlackBoxRecorder.record).
+	 */
+	public void recordBlackBoxFrame(int mode, int actionNumber, int actionType) {
+		if (blackBox != null) {
+			blackBox.record(mode, actionNumber, actionType);
+		}
+	}
+
 	public void setDiagnosticLight(boolean setOn) {
 		diagnosticLight.set(setOn);
 	}
@@ -0,0 +1,12 @@
+package org.usfirst.frc.team3215.robot.hal;
+
+/**
+ * The USB camera streamed to the driver station.
+ */
+public interface CameraPort {
+
+	void setResolution(int width, int height);
+
+	void setExposureManual(int value);
+
+}
@@ -0,0 +1,18 @@
+package org.usfirst.frc.team3215.robot.hal;
+
+/**
+ * A selection (e.g. of the autonomous mode) that the drivers make on the
+ * dashboard. Put it there with Dashboard.putChooser().
+ */
+public interface Chooser<T> {
+
+	void addDefault(String name, T object);
+
+	void addObject(String name, T object);
+
+	/**
+	 * The selected object, or the default if nothing is selected.
+	 */
+	T getSelected();
+
+}
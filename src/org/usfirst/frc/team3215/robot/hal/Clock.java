@@ -0,0 +1,10 @@
+package org.usfirst.frc.team3215.robot.hal;
+
+/**
+ * Source of time, in seconds (on the robot: the FPGA time).
+ */
+public interface Clock {
+
+	double getTimestamp();
+
+}
@@ -0,0 +1,14 @@
+package org.usfirst.frc.team3215.robot.hal;
+
+/**
+ * Values shown on the driver station dashboard.
+ */
+public interface Dashboard {
+
+	void putNumber(String key, double value);
+
+	void putBoolean(String key, boolean value);
+
+	void putChooser(String key, Chooser<?> chooser);
+
+}
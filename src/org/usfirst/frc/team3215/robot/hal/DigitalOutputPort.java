@@ -0,0 +1,10 @@
+package org.usfirst.frc.team3215.robot.hal;
+
+/**
+ * A digital output (DIO) port.
+ */
+public interface DigitalOutputPort {
+
+	void set(boolean value);
+
+}
@@ -0,0 +1,26 @@
+package org.usfirst.frc.team3215.robot.hal;
+
+/**
+ * A joystick or gamepad on the driver station.
+ */
+public interface HidInput {
+
+	double getRawAxis(int axis);
+
+	/**
+	 * @param button
+	 *            Button number, starting at 1.
+	 */
+	boolean getRawButton(int button);
+
+	/**
+	 * The POV (hat) direction in degrees clockwise from up, or -1 if not pressed.
+	 */
+	int getPOV();
+
+	/**
+	 * Sets the left and right rumble, between 0 and 1.
+	 */
+	void setRumble(double left, double right);
+
+}
@@ -0,0 +1,19 @@
+package org.usfirst.frc.team3215.robot.hal;
+
+/**
+ * Drives four mecanum wheels (see MecanumDrive in WPILib).
+ */
+public interface MecanumOutput {
+
+	/**
+	 * @param magnitude
+	 *            Speed, between 0 and 1.
+	 * @param angle
+	 *            Direction to drive in, in degrees clockwise from forward (robot
+	 *            orientation).
+	 * @param rotation
+	 *            Rate of turn, between -1 and 1; positive is clockwise.
+	 */
+	void drivePolar(double magnitude, double angle, double rotation);
+
+}
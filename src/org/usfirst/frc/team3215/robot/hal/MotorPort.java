@@ -0,0 +1,22 @@
+package org.usfirst.frc.team3215.robot.hal;
+
+/**
+ * A motor controller on a PWM port.
+ */
+public interface MotorPort {
+
+	/**
+	 * Sets the output, between -1. and 1.
+	 */
+	void set(double speed);
+
+	/**
+	 * The most recently set output, between -1. and 1.
+	 */
+	double get();
+
+	void setInverted(boolean isInverted);
+
+	void stopMotor();
+
+}
@@ -0,0 +1,75 @@
+package org.usfirst.frc.team3215.robot.hal;
+
+import java.io.PrintStream;
+
+/**
+ * Everything the robot code needs from the outside world: motor controllers,
+ * driver station inputs, sensors and the dashboard. RoboRioPlatform is the real
+ * thing; SimulatedPlatform keeps everything in memory so the robot code runs in
+ * a desktop JVM.
+ */
+public interface Platform {
+
+	/**
+	 * A Spark motor controller on the given PWM channel.
+	 */
+	MotorPort spark(int channel);
+
+	/**
+	 * A Victor motor controller on the given PWM channel.
+	 */
+	MotorPort victor(int channel);
+
+	/**
+	 * Mecanum drive over four motor controllers created by this platform.
+	 */
+	MecanumOutput mecanumDrive(MotorPort frontLeft, MotorPort rearLeft, MotorPort frontRight, MotorPort rearRight);
+
+	/**
+	 * The joystick on the given driver station port.
+	 */
+	HidInput joystick(int port);
+
+	DigitalOutputPort digitalOutput(int channel);
+
+	/**
+	 * Starts streaming the USB camera, and returns it.
+	 */
+	CameraPort camera();
+
+	/**
+	 * The device at the given address of the onboard I2C port (the IMU).
+	 */
+	RegisterBus imuBus(int address);
+
+	Dashboard dashboard();
+
+	<T> Chooser<T> chooser();
+
+	/**
+	 * The game specific message from the field (e.g. "LRL"); may be empty or
+	 * null.
+	 */
+	String getGameSpecificMessage();
+
+	Clock clock();
+
+	/**
+	 * Whether the clock runs in real time. If not (e.g. a simulation stepping its
+	 * own clock), the robot code starts no background threads, and whoever
+	 * steps the clock polls the sensors (see RobotHardware.pollSensors).
+	 */
+	boolean isRealtime();
+
+	/**
+	 * Where the robot log goes (see LogHelper), or null to discard it.
+	 */
+	PrintStream getLogOutput();
+
+	/**
+	 * Directory for files kept across runs (black box, IMU calibration), or null
+	 * to keep nothing.
+	 */
+	String getDataDirectory();
+
+}
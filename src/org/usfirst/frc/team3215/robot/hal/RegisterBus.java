@@ -0,0 +1,21 @@
+package org.usfirst.frc.team3215.robot.hal;
+
+/**
+ * A device with 8 bit registers, e.g. on I2C. All methods return true on
+ * success, and may be called from any thread.
+ */
+public interface RegisterBus {
+
+	boolean write(int register, byte value);
+
+	/**
+	 * Writes data[1..] to the registers starting at data[0].
+	 */
+	boolean writeBulk(byte[] data);
+
+	/**
+	 * Reads buffer.length registers, starting at the given one. Must not allocate.
+	 */
+	boolean read(int register, byte[] buffer);
+
+}
@@ -0,0 +1,263 @@
+package org.usfirst.frc.team3215.robot.hal;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+
+import edu.wpi.cscore.UsbCamera;
+import edu.wpi.first.wpilibj.CameraServer;
+import edu.wpi.first.wpilibj.DigitalOutput;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.GenericHID.RumbleType;
+import edu.wpi.first.wpilibj.I2C;
+import edu.wpi.first.wpilibj.Joystick;
+import edu.wpi.first.wpilibj.Spark;
+import edu.wpi.first.wpilibj.SpeedController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.Victor;
+import edu.wpi.first.wpilibj.drive.MecanumDrive;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * The real robot: everything goes through WPILib. This is the only place
+ * (next to Robot) that uses WPILib.
+ */
+public class RoboRioPlatform implements Platform {
+
+	private final static Clock FPGA_CLOCK = new Clock() {
+		@Override
+		public double getTimestamp() {
+			return Timer.getFPGATimestamp();
+		}
+	};
+
+	private final static Dashboard SMART_DASHBOARD = new Dashboard() {
+		@Override
+		public void putNumber(String key, double value) {
+			SmartDashboard.putNumber(key, value);
+		}
+
+		@Override
+		public void putBoolean(String key, boolean value) {
+			SmartDashboard.putBoolean(key, value);
+		}
+
+		@Override
+		public void putChooser(String key, Chooser<?> chooser) {
+			SmartDashboard.putData(key, ((WpiChooser<?>) chooser).chooser);
+		}
+	};
+
+	@Override
+	public MotorPort spark(int channel) {
+		return new WpiMotor(new Spark(channel));
+	}
+
+	@Override
+	public MotorPort victor(int channel) {
+		return new WpiMotor(new Victor(channel));
+	}
+
+	@Override
+	public MecanumOutput mecanumDrive(MotorPort frontLeft, MotorPort rearLeft, MotorPort frontRight,
+			MotorPort rearRight) {
+		final MecanumDrive mecanumDrive = new MecanumDrive(((WpiMotor) frontLeft).controller,
+				((WpiMotor) rearLeft).controller, ((WpiMotor) frontRight).controller,
+				((WpiMotor) rearRight).controller);
+		return new MecanumOutput() {
+			@Override
+			public void drivePolar(double magnitude, double angle, double rotation) {
+				mecanumDrive.drivePolar(magnitude, angle, rotation);
+			}
+		};
+	}
+
+	@Override
+	public HidInput joystick(int port) {
+		return new WpiJoystick(new Joystick(port));
+	}
+
+	@Override
+	public DigitalOutputPort digitalOutput(int channel) {
+		final DigitalOutput output = new DigitalOutput(channel);
+		return new DigitalOutputPort() {
+			@Override
+			public void set(boolean value) {
+				output.set(value);
+			}
+		};
+	}
+
+	@Override
+	public CameraPort camera() {
+		final UsbCamera usbCamera = CameraServer.getInstance().startAutomaticCapture();
+		return new CameraPort() {
+			@Override
+			public void setResolution(int width, int height) {
+				usbCamera.setResolution(width, height);
+			}
+
+			@Override
+			public void setExposureManual(int value) {
+				usbCamera.setExposureManual(value);
+			}
+		};
+	}
+
+	@Override
+	public RegisterBus imuBus(int address) {
+		return new I2CBus(new I2C(I2C.Port.kOnboard, address));
+	}
+
+	@Override
+	public Dashboard dashboard() {
+		return SMART_DASHBOARD;
+	}
+
+	@Override
+	public <T> Chooser<T> chooser() {
+		return new WpiChooser<T>();
+	}
+
+	@Override
+	public String getGameSpecificMessage() {
+		return DriverStation.getInstance().getGameSpecificMessage();
+	}
+
+	@Override
+	public Clock clock() {
+		return FPGA_CLOCK;
+	}
+
+	@Override
+	public boolean isRealtime() {
+		return true;
+	}
+
+	@Override
+	public PrintStream getLogOutput() {
+		return System.out;
+	}
+
+	@Override
+	public String getDataDirectory() {
+		return "/home/lvuser";
+	}
+
+	private static class WpiMotor implements MotorPort {
+		private final SpeedController controller;
+
+		WpiMotor(SpeedController controller) {
+			this.controller = controller;
+		}
+
+		@Override
+		public void set(double speed) {
+			controller.set(speed);
+		}
+
+		@Override
+		public double get() {
+			return controller.get();
+		}
+
+		@Override
+		public void setInverted(boolean isInverted) {
+			controller.setInverted(isInverted);
+		}
+
+		@Override
+		public void stopMotor() {
+			controller.stopMotor();
+		}
+	}
+
+	private static class WpiJoystick implements HidInput {
+		private final Joystick joystick;
+
+		WpiJoystick(Joystick joystick) {
+			this.joystick = joystick;
+		}
+
+		@Override
+		public double getRawAxis(int axis) {
+			return joystick.getRawAxis(axis);
+		}
+
+		@Override
+		public boolean getRawButton(int button) {
+			return joystick.getRawButton(button);
+		}
+
+		@Override
+		public int getPOV() {
+			return joystick.getPOV();
+		}
+
+		@Override
+		public void setRumble(double left, double right) {
+			joystick.setRumble(RumbleType.kLeftRumble, left);
+			joystick.setRumble(RumbleType.kRightRumble, right);
+		}
+	}
+
+	private static class WpiChooser<T> implements Chooser<T> {
+		private final SendableChooser<T> chooser = new SendableChooser<T>();
+
+		@Override
+		public void addDefault(String name, T object) {
+			chooser.addDefault(name, object);
+		}
+
+		@Override
+		public void addObject(String name, T object) {
+			chooser.addObject(name, object);
+		}
+
+		@Override
+		public T getSelected() {
+			return chooser.getSelected();
+		}
+	}
+
+	/**
+	 * I2C device. Reads use a transaction with preallocated direct buffers, as
+	 * I2C.read(int, int, byte[]) allocates on every call.
+	 */
+	private static class I2CBus implements RegisterBus {
+		private final I2C i2c;
+		private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(1); // guarded by itself
+		private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(64); // guarded by sendBuffer
+
+		I2CBus(I2C i2c) {
+			this.i2c = i2c;
+		}
+
+		@Override
+		public boolean write(int register, byte value) {
+			// WPILib returns true on abort
+			return !i2c.write(register, value);
+		}
+
+		@Override
+		public boolean writeBulk(byte[] data) {
+			return !i2c.writeBulk(data);
+		}
+
+		@Override
+		public boolean read(int register, byte[] buffer) {
+			if (buffer.length > receiveBuffer.capacity()) {
+				return false;
+			}
+			synchronized (sendBuffer) {
+				sendBuffer.put(0, (byte) register);
+				boolean aborted = i2c.transaction(sendBuffer, 1, receiveBuffer, buffer.length);
+				for (int i = 0; i < buffer.length; i++) {
+					buffer[i] = receiveBuffer.get(i);
+				}
+				return !aborted;
+			}
+		}
+	}
+
+}
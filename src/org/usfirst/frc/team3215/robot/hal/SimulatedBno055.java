@@ -0,0 +1,172 @@
+package org.usfirst.frc.team3215.robot.hal;
+
+/**
+ * In-memory stand-in for the registers of a BNO055 IMU, enough for the BNO055
+ * driver to initialize and read samples. The simulation sets the sensor values
+ * (heading, rate of turn, linear acceleration); there is no sensor fusion.
+ * Thread safe.
+ */
+public class SimulatedBno055 implements RegisterBus {
+
+	// register addresses (page 0), see BNO055.reg_t
+	private final static int CHIP_ID = 0x00;
+	private final static int PAGE_ID = 0x07;
+	private final static int GYRO_DATA = 0x14;
+	private final static int EULER_DATA = 0x1A;
+	private final static int LINEAR_ACCEL_DATA = 0x28;
+	private final static int TEMP = 0x34;
+	private final static int CALIB_STAT = 0x35;
+	private final static int SELFTEST_RESULT = 0x36;
+	private final static int SYS_CLK_STAT = 0x38;
+	private final static int SYS_STAT = 0x39;
+	private final static int OPR_MODE = 0x3D;
+	private final static int PWR_MODE = 0x3E;
+	private final static int SYS_TRIGGER = 0x3F;
+
+	private final static int OPERATION_MODE_CONFIG = 0x00;
+	private final static int OPERATION_MODE_IMUPLUS = 0x08; // first mode with sensor fusion
+
+	private final byte[] registers = new byte[0x80];
+	private int writes = 0;
+	private int reads = 0;
+
+	public SimulatedBno055() {
+		reset();
+	}
+
+	private void reset() {
+		synchronized (registers) {
+			for (int i = 0; i < registers.length; i++) {
+				registers[i] = 0;
+			}
+			registers[CHIP_ID] = (byte) 0xA0;
+			registers[TEMP] = 25;
+			registers[CALIB_STAT] = (byte) 0xFF;
+			registers[SELFTEST_RESULT] = 0x0F;
+		}
+	}
+
+	/**
+	 * Sets the Euler heading (degrees, clockwise, [0,360[) the sensor reports.
+	 */
+	public void setHeading(double heading) {
+		double plainHeading = heading - 360. * Math.floor(heading / 360.);
+		putShort(EULER_DATA, (int) Math.round(plainHeading * 16.) % (360 * 16));
+	}
+
+	/**
+	 * Sets the gyro rate of turn around z (degrees per second, counterclockwise).
+	 */
+	public void setGyroZ(double degreesPerSecond) {
+		putShort(GYRO_DATA + 4, (int) Math.round(degreesPerSecond * 16.));
+	}
+
+	/**
+	 * Sets the linear acceleration in the sensor frame [m/s^2].
+	 */
+	public void setLinearAcceleration(double x, double y, double z) {
+		putShort(LINEAR_ACCEL_DATA, (int) Math.round(x * 100.));
+		putShort(LINEAR_ACCEL_DATA + 2, (int) Math.round(y * 100.));
+		putShort(LINEAR_ACCEL_DATA + 4, (int) Math.round(z * 100.));
+	}
+
+	/**
+	 * Sets the calibration status register (0xFF: everything calibrated).
+	 */
+	public void setCalibrationStatus(int status) {
+		synchronized (registers) {
+			registers[CALIB_STAT] = (byte) status;
+		}
+	}
+
+	/**
+	 * The current value of the given register.
+	 */
+	public int getRegister(int register) {
+		synchronized (registers) {
+			return registers[register] & 0xFF;
+		}
+	}
+
+	/**
+	 * Number of register reads and writes so far.
+	 */
+	public int getTransactions() {
+		synchronized (registers) {
+			return reads + writes;
+		}
+	}
+
+	private void putShort(int register, int value) {
+		synchronized (registers) {
+			registers[register] = (byte) value;
+			registers[register + 1] = (byte) (value >> 8);
+		}
+	}
+
+	@Override
+	public boolean write(int register, byte value) {
+		synchronized (registers) {
+			writes++;
+			if (register < 0 || register >= registers.length) {
+				return false;
+			}
+			switch (register) {
+			case SYS_TRIGGER:
+				if ((value & 0x20) != 0) {
+					reset();
+				}
+				// the clock switch (0x80) is immediate
+				registers[SYS_CLK_STAT] = 0;
+				break;
+			case OPR_MODE:
+				registers[OPR_MODE] = value;
+				int mode = value & 0x0F;
+				if (mode == OPERATION_MODE_CONFIG) {
+					registers[SYS_STAT] = 0; // idle
+				} else if (mode >= OPERATION_MODE_IMUPLUS) {
+					registers[SYS_STAT] = 5; // fusion running
+				} else {
+					registers[SYS_STAT] = 6; // running without fusion
+				}
+				break;
+			case CHIP_ID:
+			case SYS_STAT:
+			case SYS_CLK_STAT:
+				return false; // read only
+			case PAGE_ID:
+			case PWR_MODE:
+			default:
+				registers[register] = value;
+			}
+			return true;
+		}
+	}
+
+	@Override
+	public boolean writeBulk(byte[] data) {
+		synchronized (registers) {
+			int register = data[0] & 0xFF;
+			if (register + data.length - 1 > registers.length) {
+				return false;
+			}
+			for (int i = 1; i < data.length; i++) {
+				write(register + i - 1, data[i]);
+			}
+			return true;
+		}
+	}
+
+	@Override
+	public boolean read(int register, byte[] buffer) {
+		synchronized (registers) {
+			reads++;
+			if (register < 0 || register + buffer.length > registers.length) {
+				return false;
+			}
+			System.arraycopy(registers, register, buffer, 0, buffer.length);
+			return true;
+		}
+	}
+
+}
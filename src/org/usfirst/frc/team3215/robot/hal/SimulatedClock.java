@@ -0,0 +1,23 @@
+package org.usfirst.frc.team3215.robot.hal;
+
+/**
+ * A clock that only moves when the simulation says so (see SimulatedPlatform).
+ * Starts at zero.
+ */
+public class SimulatedClock implements Clock {
+
+	private volatile double time = 0;
+
+	@Override
+	public double getTimestamp() {
+		return time;
+	}
+
+	/**
+	 * Moves the clock forward by the given number of seconds.
+	 */
+	public void advance(double seconds) {
+		time += seconds;
+	}
+
+}
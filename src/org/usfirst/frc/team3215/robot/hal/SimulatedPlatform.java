@@ -0,0 +1,404 @@
+package org.usfirst.frc.team3215.robot.hal;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory stand-ins for all the hardware, so the full robot code runs in a
+ * desktop JVM (e.g. for tests and benchmarks). Motor outputs, dashboard values
+ * and the digital outputs can be read back; joysticks, the IMU, the game
+ * message, the autonomous selection and the clock can be set.
+ * <p>
+ * By default the clock runs in real time. With a clock of its own (e.g. a
+ * SimulatedClock), the platform is not realtime: the robot code starts no
+ * threads, and the simulation steps the clock and calls
+ * RobotHardware.pollSensors() itself, which makes runs deterministic.
+ */
+public class SimulatedPlatform implements Platform {
+
+	private final static int CHANNELS = 10;
+
+	private final SimulatedMotor[] motors = new SimulatedMotor[CHANNELS];
+	private final SimulatedJoystick[] joysticks = new SimulatedJoystick[6];
+	private final SimulatedDigitalOutput[] digitalOutputs = new SimulatedDigitalOutput[CHANNELS];
+	private SimulatedMecanum mecanum;
+	private final SimulatedBno055 imu = new SimulatedBno055();
+	private final SimulatedDashboard dashboard = new SimulatedDashboard();
+	private volatile String gameSpecificMessage = "";
+	private final Clock clock;
+	private final boolean realtime;
+	private volatile String dataDirectory = null;
+	private volatile PrintStream logOutput = System.out;
+
+	/**
+	 * A platform whose clock is the time since it was created.
+	 */
+	public SimulatedPlatform() {
+		final long startNanoTime = System.nanoTime();
+		clock = new Clock() {
+			@Override
+			public double getTimestamp() {
+				return (System.nanoTime() - startNanoTime) / 1e9;
+			}
+		};
+		realtime = true;
+		createJoysticks();
+	}
+
+	/**
+	 * A platform that runs on the given clock, stepped by the simulation (not
+	 * realtime).
+	 */
+	public SimulatedPlatform(Clock clock) {
+		this.clock = clock;
+		realtime = false;
+		createJoysticks();
+	}
+
+	private void createJoysticks() {
+		for (int i = 0; i < joysticks.length; i++) {
+			joysticks[i] = new SimulatedJoystick();
+		}
+	}
+
+	@Override
+	public synchronized MotorPort spark(int channel) {
+		motors[channel] = new SimulatedMotor();
+		return motors[channel];
+	}
+
+	@Override
+	public synchronized MotorPort victor(int channel) {
+		motors[channel] = new SimulatedMotor();
+		return motors[channel];
+	}
+
+	@Override
+	public synchronized MecanumOutput mecanumDrive(MotorPort frontLeft, MotorPort rearLeft, MotorPort frontRight,
+			MotorPort rearRight) {
+		mecanum = new SimulatedMecanum(frontLeft, rearLeft, frontRight, rearRight);
+		return mecanum;
+	}
+
+	@Override
+	public HidInput joystick(int port) {
+		return joysticks[port];
+	}
+
+	@Override
+	public synchronized DigitalOutputPort digitalOutput(int channel) {
+		digitalOutputs[channel] = new SimulatedDigitalOutput();
+		return digitalOutputs[channel];
+	}
+
+	@Override
+	public CameraPort camera() {
+		return new CameraPort() {
+			@Override
+			public void setResolution(int width, int height) {
+			}
+
+			@Override
+			public void setExposureManual(int value) {
+			}
+		};
+	}
+
+	@Override
+	public RegisterBus imuBus(int address) {
+		return imu;
+	}
+
+	@Override
+	public Dashboard dashboard() {
+		return dashboard;
+	}
+
+	@Override
+	public <T> Chooser<T> chooser() {
+		return new SimulatedChooser<T>();
+	}
+
+	@Override
+	public String getGameSpecificMessage() {
+		return gameSpecificMessage;
+	}
+
+	@Override
+	public Clock clock() {
+		return clock;
+	}
+
+	@Override
+	public boolean isRealtime() {
+		return realtime;
+	}
+
+	@Override
+	public PrintStream getLogOutput() {
+		return logOutput;
+	}
+
+	@Override
+	public String getDataDirectory() {
+		return dataDirectory;
+	}
+
+	// simulation side
+
+	/**
+	 * The motor controller on the given PWM channel, or null if the robot code
+	 * didn't create one.
+	 */
+	public synchronized SimulatedMotor getMotor(int channel) {
+		return motors[channel];
+	}
+
+	/**
+	 * The mecanum drive, or null if the robot code didn't create one.
+	 */
+	public synchronized SimulatedMecanum getMecanum() {
+		return mecanum;
+	}
+
+	public SimulatedJoystick getJoystick(int port) {
+		return joysticks[port];
+	}
+
+	public synchronized SimulatedDigitalOutput getDigitalOutput(int channel) {
+		return digitalOutputs[channel];
+	}
+
+	public SimulatedBno055 getImu() {
+		return imu;
+	}
+
+	public SimulatedDashboard getDashboard() {
+		return dashboard;
+	}
+
+	/**
+	 * Where to keep the black box and IMU calibration files; null (the default)
+	 * keeps nothing.
+	 */
+	public void setDataDirectory(String dataDirectory) {
+		this.dataDirectory = dataDirectory;
+	}
+
+	public void setGameSpecificMessage(String gameSpecificMessage) {
+		this.gameSpecificMessage = gameSpecificMessage;
+	}
+
+	/**
+	 * Where the robot log goes (System.out by default); null discards it. Set it
+	 * before the robot code starts.
+	 */
+	public void setLogOutput(PrintStream logOutput) {
+		this.logOutput = logOutput;
+	}
+
+	public static class SimulatedMotor implements MotorPort {
+		private volatile double speed = 0;
+		private volatile boolean inverted = false;
+
+		@Override
+		public void set(double speed) {
+			this.speed = Math.max(-1., Math.min(1., speed));
+		}
+
+		@Override
+		public double get() {
+			return speed;
+		}
+
+		@Override
+		public void setInverted(boolean isInverted) {
+			inverted = isInverted;
+		}
+
+		public boolean getInverted() {
+			return inverted;
+		}
+
+		@Override
+		public void stopMotor() {
+			speed = 0;
+		}
+	}
+
+	/**
+	 * Remembers the most recent command, and sets the wheel motors the same way
+	 * WPILib's MecanumDrive does (including the inverted right side).
+	 */
+	public static class SimulatedMecanum implements MecanumOutput {
+		private final static double DEGREES_TO_RAD = Math.PI / 180.;
+
+		private final MotorPort frontLeft;
+		private final MotorPort rearLeft;
+		private final MotorPort frontRight;
+		private final MotorPort rearRight;
+		private volatile double magnitude = 0;
+		private volatile double angle = 0;
+		private volatile double rotation = 0;
+
+		SimulatedMecanum(MotorPort frontLeft, MotorPort rearLeft, MotorPort frontRight, MotorPort rearRight) {
+			this.frontLeft = frontLeft;
+			this.rearLeft = rearLeft;
+			this.frontRight = frontRight;
+			this.rearRight = rearRight;
+		}
+
+		@Override
+		public void drivePolar(double magnitude, double angle, double rotation) {
+			this.magnitude = magnitude;
+			this.angle = angle;
+			this.rotation = rotation;
+
+			double right = magnitude * Math.sin(angle * DEGREES_TO_RAD);
+			double forward = magnitude * Math.cos(angle * DEGREES_TO_RAD);
+			right = Math.max(-1., Math.min(1., right));
+			forward = Math.max(-1., Math.min(1., forward));
+			double turn = Math.max(-1., Math.min(1., rotation));
+
+			double fl = right + forward + turn;
+			double fr = -right + forward - turn;
+			double rl = -right + forward + turn;
+			double rr = right + forward - turn;
+			double max = Math.max(1., Math.max(Math.max(Math.abs(fl), Math.abs(fr)), Math.max(Math.abs(rl),
+					Math.abs(rr))));
+
+			frontLeft.set(fl / max);
+			frontRight.set(-fr / max);
+			rearLeft.set(rl / max);
+			rearRight.set(-rr / max);
+		}
+
+		/**
+		 * Speed of the most recent drivePolar() call, between 0 and 1.
+		 */
+		public double getMagnitude() {
+			return magnitude;
+		}
+
+		/**
+		 * Direction of the most recent drivePolar() call, in degrees clockwise from
+		 * forward.
+		 */
+		public double getAngle() {
+			return angle;
+		}
+
+		/**
+		 * Rate of turn of the most recent drivePolar() call, between -1 and 1,
+		 * clockwise positive.
+		 */
+		public double getRotation() {
+			return rotation;
+		}
+	}
+
+	public static class SimulatedJoystick implements HidInput {
+		private final double[] axes = new double[6];
+		private final boolean[] buttons = new boolean[13];
+		private volatile int pov = -1;
+
+		@Override
+		public synchronized double getRawAxis(int axis) {
+			return axes[axis];
+		}
+
+		@Override
+		public synchronized boolean getRawButton(int button) {
+			return buttons[button];
+		}
+
+		@Override
+		public int getPOV() {
+			return pov;
+		}
+
+		@Override
+		public void setRumble(double left, double right) {
+		}
+
+		public synchronized void setRawAxis(int axis, double value) {
+			axes[axis] = value;
+		}
+
+		public synchronized void setRawButton(int button, boolean pressed) {
+			buttons[button] = pressed;
+		}
+
+		public void setPOV(int pov) {
+			this.pov = pov;
+		}
+	}
+
+	public static class SimulatedDigitalOutput implements DigitalOutputPort {
+		private volatile boolean value = false;
+
+		@Override
+		public void set(boolean value) {
+			this.value = value;
+		}
+
+		public boolean get() {
+			return value;
+		}
+	}
+
+	public static class SimulatedDashboard implements Dashboard {
+		private final Map<String, Object> values = new HashMap<String, Object>();
+
+		@Override
+		public synchronized void putNumber(String key, double value) {
+			values.put(key, value);
+		}
+
+		@Override
+		public synchronized void putBoolean(String key, boolean value) {
+			values.put(key, value);
+		}
+
+		@Override
+		public synchronized void putChooser(String key, Chooser<?> chooser) {
+			values.put(key, chooser);
+		}
+
+		/**
+		 * The value most recently put under the given key, or null.
+		 */
+		public synchronized Object get(String key) {
+			return values.get(key);
+		}
+	}
+
+	public static class SimulatedChooser<T> implements Chooser<T> {
+		private volatile T defaultObject;
+		private volatile T selected;
+
+		@Override
+		public void addDefault(String name, T object) {
+			defaultObject = object;
+		}
+
+		@Override
+		public void addObject(String name, T object) {
+		}
+
+		@Override
+		public T getSelected() {
+			T object = selected;
+			return object != null ? object : defaultObject;
+		}
+
+		/**
+		 * What the drivers selected on the dashboard.
+		 */
+		public void select(T object) {
+			selected = object;
+		}
+	}
+
+}
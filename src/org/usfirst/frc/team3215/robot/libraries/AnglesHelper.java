@@ -28,4 +28,19 @@ public class AnglesHelper {
 		return angleDiff - 360. * turnsLeftRight;
 	}
 
+	/**
+	 * Unwraps a heading that is reported in the [0,360[ interval. Given the
+	 * previous and the current reported heading and the change of heading that
+	 * the gyro predicts in between (rate of turn times elapsed time, in the same
+	 * direction as the heading), returns how many full turns to add to the turn
+	 * counter: the number of wraps that brings the change of heading closest to
+	 * the prediction. This also works for fast spins and after dropped samples,
+	 * where the change can be larger than half a turn. Without a gyro, pass 0 as
+	 * predicted change to take the shortest way.
+	 */
+	public static long getTurnsCrossed(double previousHeading, double heading, double predictedChange) {
+		double headingDiff = heading - previousHeading;
+		return (long) Math.floor(0.5 + (predictedChange - headingDiff) / 360.);
+	}
+
 }
@@ -1,24 +1,27 @@
 package org.usfirst.frc.team3215.robot.libraries;
 
 import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
-import edu.wpi.first.wpilibj.I2C;
-import edu.wpi.first.wpilibj.Timer;
+import org.usfirst.frc.team3215.robot.hal.Clock;
+import org.usfirst.frc.team3215.robot.hal.RegisterBus;
 
 /**
  * BNO055 IMU for the FIRST Robotics Competition. References throughout the code
  * are to the following sensor documentation: http://git.io/vuOl1
  * 
- * To use the sensor, wire up to it over I2C on the roboRIO. Creating an
- * instance of this class will cause communications with the sensor to being.All
- * communications with the sensor occur in a separate thread from your robot
- * code to avoid blocking the main robot program execution.
+ * To use the sensor, wire up to it over I2C on the roboRIO. Calling start()
+ * will cause communications with the sensor to begin. All communications with
+ * the sensor occur in a separate thread from your robot code to avoid blocking
+ * the main robot program execution. (Simulations can instead call poll()
+ * themselves.)
  * 
- * Example: private static BNO055 imu;
+ * Example: private BNO055 imu;
  * 
- * public Robot() { imu =
- * BNO055.getInstance(BNO055.opmode_t.OPERATION_MODE_IMUPLUS,
- * BNO055.vector_type_t.VECTOR_EULER); }
+ * public Robot() { imu = new BNO055(platform.imuBus(BNO055.BNO055_ADDRESS_A),
+ * platform.clock(), BNO055.opmode_t.OPERATION_MODE_IMUPLUS,
+ * BNO055.vector_type_t.VECTOR_EULER); imu.start(); }
  * 
  * You can check the status of the sensor by using the following methods:
  * isSensorPresent(); //Checks if the code can talk to the sensor over I2C // If
@@ -64,18 +67,18 @@ import edu.wpi.first.wpilibj.Timer;
 public class BNO055 {
 	// Tread variables
 	private java.util.Timer executor;
-	private static final long THREAD_PERIOD = 20; // must be 20ms or larger - max poll rate on sensor.
+	private static final long THREAD_PERIOD = 20; // default poll period [ms]
+	private static final long MIN_THREAD_PERIOD = 10; // the sensor fusion output runs at 100 Hz
 
 	public static final byte BNO055_ADDRESS_A = 0x28;
 	public static final byte BNO055_ADDRESS_B = 0x29;
 	public static final int BNO055_ID = 0xA0;
 
-	private static BNO055 instance;
-
-	private static I2C imu;
-	private static int _mode;
-	private static opmode_t requestedMode; // user requested mode of operation.
-	private static vector_type_t requestedVectorType;
+	private final RegisterBus bus;
+	private final Clock clock;
+	private volatile int _mode;
+	private final opmode_t requestedMode; // user requested mode of operation.
+	private final vector_type_t requestedVectorType;
 
 	// State machine variables
 	private volatile int state = 0;
@@ -83,9 +86,73 @@ public class BNO055 {
 	private volatile boolean initialized = false;
 	private volatile double currentTime; // seconds
 	private volatile double nextTime; // seconds
-	private volatile byte[] positionVector = new byte[6];
-	private volatile long turns = 0;
-	private volatile double[] xyz = new double[3];
+
+	// initialization timeline: how long each state took, and whether it gave up
+	// waiting for the chip (timeouts can be changed with setInitTimeout)
+	public final static int INIT_STATES = 9;
+	private final double[] initTimeouts = { 0, 0, 0.050, 0, 0.050, 0.050, 0.050, 0.500, 1.05 }; // [s]
+	private final double[] initDurations = new double[INIT_STATES]; // [s], update thread until initialized
+	private final boolean[] initTimedOut = new boolean[INIT_STATES]; // update thread until initialized
+	private double initStartTime = -1; // update thread only
+	private double initStateStartTime = 0; // update thread only
+	private final byte[] positionVector = new byte[6];
+	private long turns = 0; // update thread only
+	private boolean hasPreviousSample = false; // update thread only
+	private double previousSampleTime = 0; // update thread only [s]
+	private double previousHeadingRate = 0; // update thread only [degrees/s, heading direction]
+	private final double[] xyz = new double[3]; // last sample, update thread only (readers use the published fields)
+	private final double[] pos = new double[3]; // scratch buffer for the update thread
+	private final byte[] read8Buffer = new byte[1]; // guarded by itself
+
+	// sample notification: every new sample increments sampleCount and wakes up
+	// all threads waiting in awaitSample()
+	private final static int MAX_WAITERS = 4;
+	private volatile long sampleCount = 0;
+
+	// most recent sample, published with a sequence lock (odd while writing) so
+	// that the continuous heading, its parts and the timestamp always match
+	private volatile long headingSequence = 0;
+	private volatile double publishedRawHeading = 0;
+	private volatile double publishedRoll = 0;
+	private volatile double publishedPitch = 0;
+	private volatile long publishedTurns = 0;
+	private volatile long publishedFusionRestarts = 0;
+	private volatile double publishedHeading = 0; // continuous heading
+	private volatile double sampleTimestamp = 0; // FPGA time of the most recent sample [s]
+	private final AtomicReferenceArray<Thread> waiters = new AtomicReferenceArray<Thread>(MAX_WAITERS);
+
+	// burst mode: read the register window from gyro data up to the calibration
+	// status in one transaction; see setBurstMode()
+	private final static int BURST_START_ADDR = 0x14; // BNO055_GYRO_DATA_X_LSB_ADDR
+	private final static int BURST_LENGTH = 0x35 - BURST_START_ADDR + 1; // up to BNO055_CALIB_STAT_ADDR
+	private final static int BURST_GYRO = 0x14 - BURST_START_ADDR;
+	private final static int BURST_EULER = 0x1A - BURST_START_ADDR;
+	private final static int BURST_LINEAR_ACCEL = 0x28 - BURST_START_ADDR;
+	private final static int BURST_TEMP = 0x34 - BURST_START_ADDR;
+	private final static int BURST_CALIB_STAT = 0x35 - BURST_START_ADDR;
+	private volatile boolean burstMode = false;
+	private final byte[] burstBuffer = new byte[BURST_LENGTH];
+
+	// calibration profile: the accelerometer, magnetometer and gyroscope offsets
+	// and the accelerometer and magnetometer radius (registers 0x55 to 0x6A); they
+	// can only be read and written in config mode
+	public final static int CALIBRATION_PROFILE_LENGTH = 0x6A - 0x55 + 1;
+	private final static double CONFIG_MODE_SWITCH_TIME = 0.025; // [s], the datasheet says 19 ms
+	private final byte[] calibrationProfileWrite = new byte[CALIBRATION_PROFILE_LENGTH + 1]; // register + profile
+	private volatile boolean calibrationProfileToWrite = false;
+	private final byte[] calibrationProfileRead = new byte[CALIBRATION_PROFILE_LENGTH]; // guarded by itself
+	private volatile boolean calibrationProfileRequested = false;
+	private volatile boolean calibrationProfileAvailable = false;
+	private int calibrationProfileReadState = 0; // update thread only
+	private long fusionRestarts = 0; // update thread only
+
+	// most recent burst read, published with a sequence lock (odd while writing)
+	private volatile long burstSequence = 0;
+	private volatile double burstGyroX, burstGyroY, burstGyroZ;
+	private volatile double burstEulerHeading, burstEulerRoll, burstEulerPitch;
+	private volatile double burstLinearAccelX, burstLinearAccelY, burstLinearAccelZ;
+	private volatile int burstTemperature;
+	private volatile int burstCalibration;
 
 	public class SystemStatus {
 		public int system_status;
@@ -237,7 +304,44 @@ public class BNO055 {
 		public byte bl_rev;
 	}
 
-	public class CalData {
+	// sensors used per operating mode, per Table 3-3
+	private static final boolean[][] SENSOR_MODE_MAP = new boolean[][] {
+			// {accel, mag, gyro}
+			{ false, false, false }, // OPERATION_MODE_CONFIG
+			{ true, false, false }, // OPERATION_MODE_ACCONLY
+			{ false, true, false }, // OPERATION_MODE_MAGONLY
+			{ false, false, true }, // OPERATION_MODE_GYRONLY
+			{ true, true, false }, // OPERATION_MODE_ACCMAG
+			{ true, false, true }, // OPERATION_MODE_ACCGYRO
+			{ false, true, true }, // OPERATION_MODE_MAGGYRO
+			{ true, true, true }, // OPERATION_MODE_AMG
+			{ true, false, true }, // OPERATION_MODE_IMUPLUS
+			{ true, true, false }, // OPERATION_MODE_COMPASS
+			{ true, true, false }, // OPERATION_MODE_M4G
+			{ true, true, true }, // OPERATION_MODE_NDOF_FMC_OFF
+			{ true, true, true } // OPERATION_MODE_NDOF
+	};
+
+	/**
+	 * One heading record, see getHeadingSample().
+	 */
+	public static class HeadingSample {
+		public double rawHeading; // [0, 360[ degrees as reported by the sensor
+		public long turns; // full turns since start
+		public double heading; // continuous heading: rawHeading + 360 * turns
+		public double timestamp; // FPGA time of the sample [s]
+		public long sampleCount; // number of the sample
+		public long fusionRestarts; // sensor fusion restarts before the sample (see requestCalibrationProfile)
+
+		@Override
+		public String toString() {
+			return "HeadingSample [rawHeading=" + rawHeading + ", turns=" + turns + ", heading=" + heading
+					+ ", timestamp=" + timestamp + ", sampleCount=" + sampleCount + ", fusionRestarts=" + fusionRestarts
+					+ "]";
+		}
+	}
+
+	public static class CalData {
 		public byte sys;
 		public byte gyro;
 		public byte accel;
@@ -249,6 +353,25 @@ public class BNO055 {
 		}
 	}
 
+	/**
+	 * Values of one burst read (see getSample). Units: degrees per second,
+	 * degrees, m/s^2 and degrees Celsius.
+	 */
+	public static class SampleData {
+		public double gyroX, gyroY, gyroZ;
+		public double heading, roll, pitch;
+		public double linearAccelX, linearAccelY, linearAccelZ;
+		public int temperature;
+		public int calibration; // raw calibration status register
+
+		@Override
+		public String toString() {
+			return "SampleData [gyro=" + gyroX + "/" + gyroY + "/" + gyroZ + ", euler=" + heading + "/" + roll + "/"
+					+ pitch + ", linearAccel=" + linearAccelX + "/" + linearAccelY + "/" + linearAccelZ
+					+ ", temperature=" + temperature + ", calibration=" + calibration + "]";
+		}
+	}
+
 	public enum vector_type_t {
 		VECTOR_ACCELEROMETER(reg_t.BNO055_ACCEL_DATA_X_LSB_ADDR.getVal()), VECTOR_MAGNETOMETER(
 				reg_t.BNO055_MAG_DATA_X_LSB_ADDR.getVal()), VECTOR_GYROSCOPE(
@@ -269,138 +392,138 @@ public class BNO055 {
 	};
 
 	/**
-	 * Instantiates a new BNO055 class.
+	 * Instantiates a new BNO055 class. Communication starts with start() (or
+	 * poll()).
 	 *
-	 * @param port
-	 *            the physical port the sensor is plugged into on the roboRio
-	 * @param address
-	 *            the address the sensor is at (0x28 or 0x29)
+	 * @param bus
+	 *            the register bus the sensor is on (e.g. the onboard I2C port of
+	 *            the roboRIO at address 0x28 or 0x29)
+	 * @param clock
+	 *            the FPGA time (or a simulated one)
+	 * @param mode
+	 *            the operating mode to run the sensor in.
+	 * @param vectorType
+	 *            the format the position vector data should be returned in (if you
+	 *            don't know use VECTOR_EULER).
 	 */
-	private BNO055(I2C.Port port, byte address) {
-		imu = new I2C(port, address);
+	public BNO055(RegisterBus bus, Clock clock, opmode_t mode, vector_type_t vectorType) {
+		this.bus = bus;
+		this.clock = clock;
+		this.requestedMode = mode;
+		this.requestedVectorType = vectorType;
+	}
 
-		executor = new java.util.Timer();
-		executor.schedule(new BNO055UpdateTask(this), 0L, THREAD_PERIOD);
+	/**
+	 * Starts polling the sensor every 20 milliseconds in its own thread.
+	 */
+	public void start() {
+		start(THREAD_PERIOD);
 	}
 
 	/**
-	 * Get an instance of the IMU object.
-	 * 
-	 * @param mode
-	 *            the operating mode to run the sensor in.
-	 * @param port
-	 *            the physical port the sensor is plugged into on the roboRio
-	 * @param address
-	 *            the address the sensor is at (0x28 or 0x29)
-	 * @return the instantiated BNO055 object
+	 * Starts polling the sensor every periodMillis milliseconds (10 or more; the
+	 * sensor fusion output runs at 100 Hz) in its own thread.
 	 */
-	public static BNO055 getInstance(opmode_t mode, vector_type_t vectorType, I2C.Port port, byte address) {
-		if (instance == null) {
-			instance = new BNO055(port, address);
+	public synchronized void start(long periodMillis) {
+		if (executor == null) {
+			executor = new java.util.Timer("BNO055", true);
+			executor.schedule(new BNO055UpdateTask(this), 0L, Math.max(periodMillis, MIN_THREAD_PERIOD));
 		}
-		requestedMode = mode;
-		requestedVectorType = vectorType;
-		return instance;
 	}
 
 	/**
-	 * Get an instance of the IMU object plugged into the onboard I2C header. Using
-	 * the default address (0x28)
-	 * 
-	 * @param mode
-	 *            the operating mode to run the sensor in.
-	 * @param vectorType
-	 *            the format the position vector data should be returned in (if you
-	 *            don't know use VECTOR_EULER).
-	 * @return the instantiated BNO055 object
+	 * Communicates with the sensor once. Only for use without start(), e.g. by a
+	 * simulation that steps its own clock.
 	 */
-	public static BNO055 getInstance(opmode_t mode, vector_type_t vectorType) {
-		return getInstance(mode, vectorType, I2C.Port.kOnboard, BNO055_ADDRESS_A);
+	public void poll() {
+		update();
 	}
 
 	/**
 	 * Called periodically. Communicates with the sensor, and checks its state.
 	 */
 	private void update() {
-		currentTime = Timer.getFPGATimestamp(); // seconds
+		currentTime = clock.getTimestamp(); // seconds
+		if (initStartTime < 0) {
+			initStartTime = currentTime;
+			initStateStartTime = currentTime;
+		}
 		if (!initialized) {
 			// Step through process of initializing the sensor in a non-
 			// blocking manner. This sequence of events follows the process
-			// defined in the original adafruit source as closely as possible.
-			// It's likely some of these delays can be optimized out.
+			// defined in the original adafruit source, but instead of waiting for
+			// fixed delays, each step polls the chip until it is ready (the old
+			// delays are the default timeouts, see setInitTimeout).
 			switch (state) {
 			case 0:
 				// Wait for the sensor to be present
-				if ((0xFF & read8(reg_t.BNO055_CHIP_ID_ADDR)) != BNO055_ID) {
+				if (read8Checked(reg_t.BNO055_CHIP_ID_ADDR) != BNO055_ID) {
 					// Sensor not present, keep trying
 					sensorPresent = false;
 				} else {
 					// Sensor present, go to next state
 					sensorPresent = true;
-					state++;
-					nextTime = Timer.getFPGATimestamp() + 0.050;
+					nextInitState();
 				}
 				break;
 			case 1:
-				if (currentTime >= nextTime) {
-					// Switch to config mode (just in case since this is the default)
-					setMode(opmode_t.OPERATION_MODE_CONFIG.getVal());
-					nextTime = Timer.getFPGATimestamp() + 0.050;
-					state++;
-				}
+				// Switch to config mode (just in case since this is the default)
+				setMode(opmode_t.OPERATION_MODE_CONFIG.getVal());
+				nextInitState();
 				break;
 			case 2:
-				// Reset
-				if (currentTime >= nextTime) {
+				// Wait for config mode, then reset
+				if (initStepDone((read8Checked(reg_t.BNO055_OPR_MODE_ADDR) & 0x0F) == 0)) {
 					write8(reg_t.BNO055_SYS_TRIGGER_ADDR, (byte) 0x20);
-					state++;
+					nextInitState();
 				}
 				break;
 			case 3:
-				// Wait for the sensor to be present
-				if ((0xFF & read8(reg_t.BNO055_CHIP_ID_ADDR)) == BNO055_ID) {
-					// Sensor present, go to next state
-					state++;
-					// Log current time
-					nextTime = Timer.getFPGATimestamp() + 0.050;
+				// Wait for the sensor to be back after the reset
+				if (read8Checked(reg_t.BNO055_CHIP_ID_ADDR) == BNO055_ID) {
+					nextInitState();
 				}
 				break;
 			case 4:
-				// Wait at least 50ms
-				if (currentTime >= nextTime) {
-					/* Set to normal power mode */
+				// Wait for the system to be idle, then set to normal power mode
+				if (initStepDone(read8Checked(reg_t.BNO055_SYS_STAT_ADDR) == 0)) {
 					write8(reg_t.BNO055_PWR_MODE_ADDR, (byte) powermode_t.POWER_MODE_NORMAL.getVal());
-					nextTime = Timer.getFPGATimestamp() + 0.050;
-					state++;
+					nextInitState();
 				}
 				break;
 			case 5:
-				// Use external crystal - 32.768 kHz
-				if (currentTime >= nextTime) {
+				if (initStepDone(
+						read8Checked(reg_t.BNO055_PWR_MODE_ADDR) == powermode_t.POWER_MODE_NORMAL.getVal())) {
 					write8(reg_t.BNO055_PAGE_ID_ADDR, (byte) 0x00);
-					nextTime = Timer.getFPGATimestamp() + 0.050;
-					state++;
+					nextInitState();
 				}
 				break;
 			case 6:
-				if (currentTime >= nextTime) {
+				// Use external crystal - 32.768 kHz
+				if (initStepDone(read8Checked(reg_t.BNO055_PAGE_ID_ADDR) == 0)) {
 					write8(reg_t.BNO055_SYS_TRIGGER_ADDR, (byte) 0x80);
-					nextTime = Timer.getFPGATimestamp() + 0.500;
-					state++;
+					nextInitState();
 				}
 				break;
 			case 7:
-				// Set operating mode to mode requested at instantiation
-				if (currentTime >= nextTime) {
+				// Wait for the clock switch (ST_MAIN_CLK clears), then set operating mode
+				// to mode requested at instantiation
+				if (initStepDone((read8Checked(reg_t.BNO055_SYS_CLK_STAT_ADDR) & 0x01) == 0)) {
+					if (calibrationProfileToWrite) {
+						// still in config mode: restore the saved calibration
+						bus.writeBulk(calibrationProfileWrite);
+					}
 					setMode(requestedMode);
-					nextTime = Timer.getFPGATimestamp() + 1.05;
-					state++;
+					nextInitState();
 				}
 				break;
 			case 8:
-				if (currentTime >= nextTime) {
-					state++;
+				// Wait for the system to run (5: with fusion, 6: without)
+				int systemStatus = read8Checked(reg_t.BNO055_SYS_STAT_ADDR);
+				if (initStepDone(systemStatus == 5 || systemStatus == 6)) {
+					nextInitState();
 				}
+				break;
 			case 9:
 				initialized = true;
 				break;
@@ -408,26 +531,216 @@ public class BNO055 {
 				// Should never get here - Fail safe
 				initialized = false;
 			}
+		} else if (calibrationProfileRequested || calibrationProfileReadState != 0) {
+			readCalibrationProfile();
 		} else {
 			// Sensor is initialized, periodically query position data
 			calculateVector();
 		}
 	}
 
+	/**
+	 * Returns true once the current init state may go on: when the chip is ready,
+	 * or when the state's timeout has passed.
+	 */
+	private boolean initStepDone(boolean ready) {
+		if (ready) {
+			return true;
+		}
+		if (currentTime - initStateStartTime >= initTimeouts[state]) {
+			initTimedOut[state] = true;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Records how long the current init state took, and goes to the next one.
+	 */
+	private void nextInitState() {
+		double now = clock.getTimestamp();
+		initDurations[state] = now - initStateStartTime;
+		initStateStartTime = now;
+		state++;
+	}
+
+	/**
+	 * Sets how long init state (2, 4 to 8) waits for the chip to become ready
+	 * before going on anyway. The defaults are the fixed delays of the original
+	 * Adafruit code. Call before start().
+	 */
+	public void setInitTimeout(int initState, double seconds) {
+		if (initState >= 0 && initState < INIT_STATES) {
+			initTimeouts[initState] = seconds;
+		}
+	}
+
+	/**
+	 * Once initialized, returns how long each init state took, e.g. "0: 12.0 ms,
+	 * 1: 0.1 ms, 2: 20.0 ms (timeout), ...", and the total time from the first
+	 * poll to initialized. Returns null while initializing.
+	 */
+	public String getInitTimeline() {
+		if (!initialized) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder();
+		double total = 0;
+		for (int i = 0; i < INIT_STATES; i++) {
+			sb.append(i).append(": ").append(Math.round(initDurations[i] * 10000.) / 10.).append(" ms");
+			if (initTimedOut[i]) {
+				sb.append(" (timeout)");
+			}
+			sb.append(", ");
+			total += initDurations[i];
+		}
+		return sb.append("total: ").append(Math.round(total * 10000.) / 10.).append(" ms").toString();
+	}
+
+	/**
+	 * Reads the calibration profile in a non-blocking manner: switch to config
+	 * mode, wait for the switch, read, and switch back.
+	 */
+	private void readCalibrationProfile() {
+		switch (calibrationProfileReadState) {
+		case 0:
+			calibrationProfileRequested = false;
+			setMode(opmode_t.OPERATION_MODE_CONFIG.getVal());
+			nextTime = clock.getTimestamp() + CONFIG_MODE_SWITCH_TIME;
+			calibrationProfileReadState++;
+			break;
+		case 1:
+			if (currentTime >= nextTime) {
+				synchronized (calibrationProfileRead) {
+					calibrationProfileAvailable = readLen(reg_t.ACCEL_OFFSET_X_LSB_ADDR, calibrationProfileRead);
+				}
+				setMode(requestedMode);
+				nextTime = clock.getTimestamp() + CONFIG_MODE_SWITCH_TIME;
+				calibrationProfileReadState++;
+				// the fusion starts over: don't unwrap across the restart
+				fusionRestarts++;
+				hasPreviousSample = false;
+			}
+			break;
+		default:
+			if (currentTime >= nextTime) {
+				calibrationProfileReadState = 0;
+			}
+		}
+	}
+
+	/**
+	 * Sets a calibration profile (see getCalibrationProfile) to be written to the
+	 * sensor during initialization, so it doesn't have to calibrate from scratch.
+	 * Call before start(); has no effect once the sensor is initialized.
+	 */
+	public void setCalibrationProfile(byte[] profile) {
+		if (profile == null || profile.length != CALIBRATION_PROFILE_LENGTH) {
+			return;
+		}
+		calibrationProfileWrite[0] = (byte) reg_t.ACCEL_OFFSET_X_LSB_ADDR.getVal();
+		System.arraycopy(profile, 0, calibrationProfileWrite, 1, CALIBRATION_PROFILE_LENGTH);
+		calibrationProfileToWrite = true;
+	}
+
+	/**
+	 * Asks the update thread to read the calibration profile from the sensor; get
+	 * it with getCalibrationProfile() a little later. The sensor is in config mode
+	 * for about 50 ms, which pauses the samples and restarts the sensor fusion: the
+	 * heading can jump (see HeadingSample.fusionRestarts), so only do this while
+	 * the robot is disabled and before it was first enabled.
+	 */
+	public void requestCalibrationProfile() {
+		calibrationProfileAvailable = false;
+		calibrationProfileRequested = true;
+	}
+
+	/**
+	 * Copies the calibration profile read after requestCalibrationProfile() into
+	 * the given array (CALIBRATION_PROFILE_LENGTH bytes). Returns false, and
+	 * leaves the array untouched, if it hasn't been read yet.
+	 */
+	public boolean getCalibrationProfile(byte[] profile) {
+		synchronized (calibrationProfileRead) {
+			if (!calibrationProfileAvailable || calibrationProfileRequested) {
+				return false;
+			}
+			System.arraycopy(calibrationProfileRead, 0, profile, 0, CALIBRATION_PROFILE_LENGTH);
+			return true;
+		}
+	}
+
 	/**
 	 * Query the sensor for position data.
 	 */
 	private void calculateVector() {
-		double[] pos = new double[3];
-		short x = 0, y = 0, z = 0;
-		double headingDiff = 0.0;
+		int vectorOffset = requestedVectorType.getVal() - BURST_START_ADDR;
+		if (burstMode) {
+			// one transaction for gyro, Euler, quaternion, linear acceleration,
+			// gravity, temperature and calibration status
+			readLen(BURST_START_ADDR, burstBuffer);
+			decodeBurst();
+		}
+
+		if (burstMode && vectorOffset >= 0 && vectorOffset + 6 <= BURST_LENGTH) {
+			decodeVector(burstBuffer, vectorOffset, pos);
+		} else {
+			// Read vector data (6 bytes)
+			readLen(requestedVectorType.getVal(), positionVector);
+			decodeVector(positionVector, 0, pos);
+		}
+
+		// calculate turns: pick the number of wraps that best matches the change of
+		// heading we expect from the rate of turn; the gyro in burst mode,
+		// otherwise the rate between the previous two samples
+		double headingRate = burstMode ? -burstGyroZ : previousHeadingRate;
+		if (hasPreviousSample) {
+			double dt = currentTime - previousSampleTime;
+			double predictedChange = (previousHeadingRate + headingRate) / 2. * dt;
+			turns += AnglesHelper.getTurnsCrossed(xyz[0], pos[0], predictedChange);
+			if (!burstMode && dt > 0) {
+				headingRate = (pos[0] + turns * 360 - publishedHeading) / dt;
+			}
+		}
+		hasPreviousSample = true;
+		previousSampleTime = currentTime;
+		previousHeadingRate = headingRate;
 
-		// Read vector data (6 bytes)
-		readLen(requestedVectorType.getVal(), positionVector);
+		// Update position vectors
+		xyz[0] = pos[0];
+		xyz[1] = pos[1];
+		xyz[2] = pos[2];
+
+		// publish the sample as one record
+		long sequence = headingSequence;
+		headingSequence = sequence + 1; // odd: writing
+		publishedRawHeading = pos[0];
+		publishedRoll = pos[1];
+		publishedPitch = pos[2];
+		publishedTurns = turns;
+		publishedFusionRestarts = fusionRestarts;
+		publishedHeading = pos[0] + turns * 360;
+		sampleTimestamp = currentTime;
+		headingSequence = sequence + 2; // even: done
+
+		// announce the new sample
+		sampleCount++;
+		for (int i = 0; i < MAX_WAITERS; i++) {
+			Thread waiter = waiters.get(i);
+			if (waiter != null) {
+				LockSupport.unpark(waiter);
+			}
+		}
+	}
 
-		x = (short) ((positionVector[0] & 0xFF) | ((positionVector[1] << 8) & 0xFF00));
-		y = (short) ((positionVector[2] & 0xFF) | ((positionVector[3] << 8) & 0xFF00));
-		z = (short) ((positionVector[4] & 0xFF) | ((positionVector[5] << 8) & 0xFF00));
+	/**
+	 * Converts the 6 byte vector at the given offset to the units of the
+	 * requested vector type.
+	 */
+	private void decodeVector(byte[] buffer, int offset, double[] pos) {
+		short x = readShort(buffer, offset);
+		short y = readShort(buffer, offset + 2);
+		short z = readShort(buffer, offset + 4);
 
 		/* Convert the value to an appropriate range (section 3.6.4) */
 		/* and assign the value to the Vector type */
@@ -459,20 +772,144 @@ public class BNO055 {
 			pos[2] = ((double) z) / 100.0;
 			break;
 		}
+	}
 
-		// calculate turns
-		headingDiff = xyz[0] - pos[0];
-		if (Math.abs(headingDiff) >= 350) {
-			// We've traveled past the zero heading position
-			if (headingDiff > 0) {
-				turns++;
-			} else {
-				turns--;
+	/**
+	 * Decodes the burst buffer and publishes it (see getSample). Units are the
+	 * sensor defaults (UNIT_SEL is never changed): degrees per second, degrees,
+	 * m/s^2 and degrees Celsius.
+	 */
+	private void decodeBurst() {
+		long sequence = burstSequence;
+		burstSequence = sequence + 1; // odd: writing
+
+		/* 1 dps = 16 LSB */
+		burstGyroX = readShort(burstBuffer, BURST_GYRO) / 16.0;
+		burstGyroY = readShort(burstBuffer, BURST_GYRO + 2) / 16.0;
+		burstGyroZ = readShort(burstBuffer, BURST_GYRO + 4) / 16.0;
+		/* 1 degree = 16 LSB */
+		burstEulerHeading = readShort(burstBuffer, BURST_EULER) / 16.0;
+		burstEulerRoll = readShort(burstBuffer, BURST_EULER + 2) / 16.0;
+		burstEulerPitch = readShort(burstBuffer, BURST_EULER + 4) / 16.0;
+		/* 1m/s^2 = 100 LSB */
+		burstLinearAccelX = readShort(burstBuffer, BURST_LINEAR_ACCEL) / 100.0;
+		burstLinearAccelY = readShort(burstBuffer, BURST_LINEAR_ACCEL + 2) / 100.0;
+		burstLinearAccelZ = readShort(burstBuffer, BURST_LINEAR_ACCEL + 4) / 100.0;
+		/* 1 degree C = 1 LSB */
+		burstTemperature = burstBuffer[BURST_TEMP];
+		burstCalibration = burstBuffer[BURST_CALIB_STAT] & 0xFF;
+
+		burstSequence = sequence + 2; // even: done
+	}
+
+	private static short readShort(byte[] buffer, int offset) {
+		return (short) ((buffer[offset] & 0xFF) | ((buffer[offset + 1] << 8) & 0xFF00));
+	}
+
+	/**
+	 * Turns burst mode on or off. In burst mode, every poll reads gyro, Euler
+	 * angles, linear acceleration, temperature and calibration status in one I2C
+	 * transaction (see getSample); getCalibration(CalData), isCalibrated() and
+	 * getTemp() then answer from the most recent poll instead of talking to the
+	 * sensor.
+	 */
+	public void setBurstMode(boolean burstMode) {
+		this.burstMode = burstMode;
+	}
+
+	public boolean isBurstMode() {
+		return burstMode;
+	}
+
+	/**
+	 * Fills the given sample with the values of the most recent burst read (all
+	 * from the same read). Returns false, and leaves the sample untouched, if
+	 * burst mode is off or no burst read has happened yet.
+	 */
+	public boolean getSample(SampleData sample) {
+		if (!burstMode || burstSequence == 0) {
+			return false;
+		}
+		long sequence;
+		do {
+			sequence = burstSequence;
+			sample.gyroX = burstGyroX;
+			sample.gyroY = burstGyroY;
+			sample.gyroZ = burstGyroZ;
+			sample.heading = burstEulerHeading;
+			sample.roll = burstEulerRoll;
+			sample.pitch = burstEulerPitch;
+			sample.linearAccelX = burstLinearAccelX;
+			sample.linearAccelY = burstLinearAccelY;
+			sample.linearAccelZ = burstLinearAccelZ;
+			sample.temperature = burstTemperature;
+			sample.calibration = burstCalibration;
+		} while (((sequence & 1) != 0) || (sequence != burstSequence));
+		return true;
+	}
+
+	/**
+	 * Rate of turn of the heading in degrees per second, in the same direction as
+	 * the heading (i.e. positive when turning clockwise). Only available in burst
+	 * mode; 0 otherwise.
+	 */
+	public double getHeadingRate() {
+		// gyro z is counterclockwise positive, the heading increases clockwise
+		return burstMode ? -burstGyroZ : 0;
+	}
+
+	/**
+	 * Number of samples read from the sensor so far.
+	 */
+	public long getSampleCount() {
+		return sampleCount;
+	}
+
+	/**
+	 * FPGA time [s] at which the most recent sample was read.
+	 */
+	public double getSampleTimestamp() {
+		return sampleTimestamp;
+	}
+
+	/**
+	 * Blocks until a sample newer than the given one has arrived (or the timeout
+	 * has passed), and returns the current sample count. Returns right away if a
+	 * newer sample is already there. Pass the previously returned value in each
+	 * time to get every sample exactly once.
+	 *
+	 * @param previousSampleCount
+	 *            The sample count returned by the previous call (or 0).
+	 * @param timeoutMillis
+	 *            Maximum time to wait.
+	 */
+	public long awaitSample(long previousSampleCount, long timeoutMillis) {
+		if (sampleCount != previousSampleCount) {
+			return sampleCount;
+		}
+
+		Thread self = Thread.currentThread();
+		int slot = -1;
+		for (int i = 0; i < MAX_WAITERS && slot < 0; i++) {
+			if (waiters.compareAndSet(i, null, self)) {
+				slot = i;
 			}
 		}
 
-		// Update position vectors
-		xyz = pos;
+		long deadline = System.nanoTime() + timeoutMillis * 1000000L;
+		while (sampleCount == previousSampleCount && !self.isInterrupted()) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				break;
+			}
+			// without a slot nobody wakes us up, so only nap briefly
+			LockSupport.parkNanos(this, (slot < 0) ? Math.min(remaining, 1000000L) : remaining);
+		}
+
+		if (slot >= 0) {
+			waiters.set(slot, null);
+		}
+		return sampleCount;
 	}
 
 	/**
@@ -586,13 +1023,14 @@ public class BNO055 {
 	}
 
 	/**
-	 * Gets current calibration state.
+	 * Gets current calibration state into the given object (to avoid allocating
+	 * a new one each time).
 	 * 
-	 * @return each value will be set to 0 if not calibrated, 3 if fully calibrated.
+	 * @return the given object; each value will be set to 0 if not calibrated, 3
+	 *         if fully calibrated.
 	 */
-	public CalData getCalibration() {
-		CalData data = new CalData();
-		int rawCalData = read8(reg_t.BNO055_CALIB_STAT_ADDR);
+	public CalData getCalibration(CalData data) {
+		int rawCalData = getRawCalibration();
 
 		data.sys = (byte) ((rawCalData >> 6) & 0x03);
 		data.gyro = (byte) ((rawCalData >> 4) & 0x03);
@@ -613,42 +1051,41 @@ public class BNO055 {
 	public boolean isCalibrated() {
 		boolean retVal = true;
 
-		// Per Table 3-3
-		boolean[][] sensorModeMap = new boolean[][] {
-				// {accel, mag, gyro}
-				{ false, false, false }, // OPERATION_MODE_CONFIG
-				{ true, false, false }, // OPERATION_MODE_ACCONLY
-				{ false, true, false }, // OPERATION_MODE_MAGONLY
-				{ false, false, true }, // OPERATION_MODE_GYRONLY
-				{ true, true, false }, // OPERATION_MODE_ACCMAG
-				{ true, false, true }, // OPERATION_MODE_ACCGYRO
-				{ false, true, true }, // OPERATION_MODE_MAGGYRO
-				{ true, true, true }, // OPERATION_MODE_AMG
-				{ true, false, true }, // OPERATION_MODE_IMUPLUS
-				{ true, true, false }, // OPERATION_MODE_COMPASS
-				{ true, true, false }, // OPERATION_MODE_M4G
-				{ true, true, true }, // OPERATION_MODE_NDOF_FMC_OFF
-				{ true, true, true } // OPERATION_MODE_NDOF
-		};
-
-		CalData data = getCalibration();
-
-		if (sensorModeMap[_mode][0]) // Accelerometer used
-			retVal = retVal && (data.accel >= 3);
-		if (sensorModeMap[_mode][1]) // Magnetometer used
-			retVal = retVal && (data.mag >= 3);
-		if (sensorModeMap[_mode][2]) // Gyroscope used
-			retVal = retVal && (data.gyro >= 3);
+		int rawCalData = getRawCalibration();
+		int accel = (rawCalData >> 2) & 0x03;
+		int mag = rawCalData & 0x03;
+		int gyro = (rawCalData >> 4) & 0x03;
+
+		if (SENSOR_MODE_MAP[_mode][0]) // Accelerometer used
+			retVal = retVal && (accel >= 3);
+		if (SENSOR_MODE_MAP[_mode][1]) // Magnetometer used
+			retVal = retVal && (mag >= 3);
+		if (SENSOR_MODE_MAP[_mode][2]) // Gyroscope used
+			retVal = retVal && (gyro >= 3);
 
 		return retVal;
 	}
 
+	/**
+	 * The calibration status register, from the most recent burst read if
+	 * available.
+	 */
+	private int getRawCalibration() {
+		if (burstMode && burstSequence != 0) {
+			return burstCalibration;
+		}
+		return read8(reg_t.BNO055_CALIB_STAT_ADDR) & 0xFF;
+	}
+
 	/**
 	 * Get the sensors internal temperature.
 	 * 
 	 * @return temperature in degrees celsius.
 	 */
 	public int getTemp() {
+		if (burstMode && burstSequence != 0) {
+			return burstTemperature;
+		}
 		return (read8(reg_t.BNO055_TEMP_ADDR));
 	}
 
@@ -665,10 +1102,27 @@ public class BNO055 {
 	 * Operating Mode Data Output Rate IMU 100 Hz COMPASS 20 Hz M4G 50 Hz
 	 * NDOF_FMC_OFF 100 Hz NDOF 100 Hz
 	 *
-	 * @return a vector [heading, roll, pitch]
+	 * @return a new vector [heading, roll, pitch]
 	 */
 	public double[] getVector() {
-		return xyz;
+		return getVector(new double[3]);
+	}
+
+	/**
+	 * Same as getVector(), but fills the given array instead of allocating a new
+	 * one.
+	 *
+	 * @return the given array, filled with [heading, roll, pitch]
+	 */
+	public double[] getVector(double[] vector) {
+		long sequence;
+		do {
+			sequence = headingSequence;
+			vector[0] = publishedRawHeading;
+			vector[1] = publishedRoll;
+			vector[2] = publishedPitch;
+		} while (((sequence & 1) != 0) || (sequence != headingSequence));
+		return vector;
 	}
 
 	/**
@@ -680,7 +1134,30 @@ public class BNO055 {
 	 * @return heading in degrees
 	 */
 	public double getHeading() {
-		return xyz[0] + turns * 360;
+		// computed (and published in one piece) by the update thread, so raw heading
+		// and turns always belong together
+		return publishedHeading;
+	}
+
+	/**
+	 * Fills the given object with the most recent heading record: raw heading,
+	 * turns, continuous heading and the time of the sample, all from the same
+	 * sample. Never blocks and does not allocate.
+	 *
+	 * @return the given object
+	 */
+	public HeadingSample getHeadingSample(HeadingSample sample) {
+		long sequence;
+		do {
+			sequence = headingSequence;
+			sample.rawHeading = publishedRawHeading;
+			sample.turns = publishedTurns;
+			sample.fusionRestarts = publishedFusionRestarts;
+			sample.heading = publishedHeading;
+			sample.timestamp = sampleTimestamp;
+		} while (((sequence & 1) != 0) || (sequence != headingSequence));
+		sample.sampleCount = sequence >> 1;
+		return sample;
 	}
 
 	/**
@@ -690,13 +1167,12 @@ public class BNO055 {
 	 *            the register to write the data to
 	 * @param value
 	 *            a byte of data to write
-	 * @return whatever I2CJNI.i2CWrite returns. It's not documented in the wpilib
-	 *         javadocs!
+	 * @return true on success
 	 */
 	private boolean write8(reg_t reg, byte value) {
 		boolean retVal = false;
 
-		retVal = imu.write(reg.getVal(), value);
+		retVal = bus.write(reg.getVal(), value);
 
 		return retVal;
 	}
@@ -709,10 +1185,23 @@ public class BNO055 {
 	 * @return
 	 */
 	private byte read8(reg_t reg) {
-		byte[] vals = new byte[1];
+		synchronized (read8Buffer) {
+			readLen(reg, read8Buffer);
+			return read8Buffer[0];
+		}
+	}
 
-		readLen(reg, vals);
-		return vals[0];
+	/**
+	 * Reads an 8 bit value over I2C, or returns -1 if the read failed (e.g. while
+	 * the chip is resetting).
+	 */
+	private int read8Checked(reg_t reg) {
+		synchronized (read8Buffer) {
+			if (!readLen(reg, read8Buffer)) {
+				return -1;
+			}
+			return read8Buffer[0] & 0xFF;
+		}
 	}
 
 	/**
@@ -744,7 +1233,7 @@ public class BNO055 {
 			return false;
 		}
 
-		retVal = !imu.read(reg, buffer.length, buffer);
+		retVal = bus.read(reg, buffer);
 
 		return retVal;
 	}
@@ -0,0 +1,213 @@
+package org.usfirst.frc.team3215.robot.libraries;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.usfirst.frc.team3215.robot.MotorHelper;
+import org.usfirst.frc.team3215.robot.config.RobotHardware;
+
+/**
+ * "Black box" match recorder. Every robot loop, one fixed-width binary frame
+ * (IMU headings, drive command, motor outputs, autonomous action, loop timing)
+ * is written straight into a memory-mapped file. Writing a frame does not
+ * allocate and does not make a system call; a background thread flushes the
+ * file to storage once per second so that it survives a brownout or reboot.
+ * <p>
+ * Each program start gets a new file (blackbox-0001.bin, blackbox-0002.bin,
+ * ...); only the most recent MAX_FILES files are kept. Once a file is full, it
+ * wraps around and overwrites its oldest frames.
+ * <p>
+ * File layout (big endian): a header of HEADER_SIZE bytes followed by
+ * FRAME_CAPACITY frames of FRAME_SIZE bytes. See the offset constants below.
+ */
+public class BlackBoxRecorder {
+
+	// header layout
+	public final static int MAGIC = 0x42424F58; // "BBOX"
+	public final static int VERSION = 1;
+	public final static int HEADER_SIZE = 64;
+	public final static int HEADER_MAGIC = 0; // int
+	public final static int HEADER_VERSION = 4; // int
+	public final static int HEADER_FRAME_SIZE = 8; // int
+	public final static int HEADER_FRAME_CAPACITY = 12; // int
+	public final static int HEADER_FRAMES_WRITTEN = 16; // long, total frames ever written (may exceed capacity)
+	public final static int HEADER_START_MILLIS = 24; // long, wall clock time of file creation
+
+	// frame layout
+	public final static int FRAME_SIZE = 88;
+	public final static int FRAME_TIME_NANOS = 0; // long, time since recorder start
+	public final static int FRAME_LOOP_MICROS = 8; // int, time since previous frame
+	public final static int FRAME_MODE = 12; // int, one of the MODE_ constants
+	public final static int FRAME_ACTION_NUMBER = 16; // int, autonomous action number (-1 if none)
+	public final static int FRAME_ACTION_TYPE = 20; // int, autonomous action type (-1 if none)
+	public final static int FRAME_HEADING = 24; // float
+	public final static int FRAME_HEADING_MVG_AVG_50 = 28; // float
+	public final static int FRAME_HEADING_MVG_AVG_90 = 32; // float
+	public final static int FRAME_HEADING_BEST_TWO_OF_THREE = 36; // float
+	public final static int FRAME_TARGET_DRIVE_DIRECTION = 40; // float
+	public final static int FRAME_DRIVE_SPEED = 44; // float
+	public final static int FRAME_TARGET_ORIENTATION_ANGLE = 48; // float
+	public final static int FRAME_TURN_SPEED = 52; // float
+	public final static int FRAME_MOTOR_OUTPUTS = 56; // float[MOTOR_CHANNELS]
+	public final static int MOTOR_CHANNELS = 8;
+
+	public final static int MODE_DISABLED = 0;
+	public final static int MODE_AUTONOMOUS = 1;
+	public final static int MODE_TELEOP = 2;
+
+	public final static int FRAME_CAPACITY = 65536; // ~20 minutes at 50 frames per second
+	private final static int MAX_FILES = 20;
+	private final static long FLUSH_INTERVAL_MILLIS = 1000;
+
+	private final RobotHardware r;
+	private final ImuSnapshot imuSnapshot = new ImuSnapshot();
+	private MappedByteBuffer buffer;
+	private Thread flushThread;
+
+	private long framesWritten = 0;
+	private long startNanoTime;
+	private long previousFrameNanoTime;
+
+	/**
+	 * Creates a new recording file in the given directory. If that fails (e.g.
+	 * directory can't be written), the recorder logs a warning and ignores all
+	 * frames.
+	 */
+	public BlackBoxRecorder(RobotHardware r, String directory) {
+		this.r = r;
+
+		try {
+			File file = nextFile(new File(directory));
+			long fileSize = HEADER_SIZE + (long) FRAME_SIZE * FRAME_CAPACITY;
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				raf.setLength(fileSize);
+				buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+			}
+
+			buffer.putInt(HEADER_MAGIC, MAGIC);
+			buffer.putInt(HEADER_VERSION, VERSION);
+			buffer.putInt(HEADER_FRAME_SIZE, FRAME_SIZE);
+			buffer.putInt(HEADER_FRAME_CAPACITY, FRAME_CAPACITY);
+			buffer.putLong(HEADER_FRAMES_WRITTEN, 0);
+			buffer.putLong(HEADER_START_MILLIS, System.currentTimeMillis());
+			buffer.force();
+
+			startNanoTime = System.nanoTime();
+			previousFrameNanoTime = startNanoTime;
+
+			flushThread = new Thread(() -> {
+				while (!Thread.interrupted()) {
+					try {
+						Thread.sleep(FLUSH_INTERVAL_MILLIS);
+					} catch (InterruptedException e) {
+						break;
+					}
+					buffer.force();
+				}
+			});
+			flushThread.setDaemon(true);
+			flushThread.start();
+
+			r.log("BlackBoxRecorder recording to " + file.getPath());
+
+		} catch (IOException | RuntimeException e) {
+			buffer = null;
+			r.log("Warning: black box recorder disabled: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Record one frame. Call once per robot loop, from the robot thread only.
+	 *
+	 * @param mode
+	 *            One of the MODE_ constants.
+	 * @param actionNumber
+	 *            The autonomous action number, or -1.
+	 * @param actionType
+	 *            The autonomous action type, or -1.
+	 */
+	public void record(int mode, int actionNumber, int actionType) {
+		if (buffer == null || r.imu() == null || r.motors() == null) {
+			return;
+		}
+
+		long nowNanoTime = System.nanoTime();
+		int base = HEADER_SIZE + (int) (framesWritten % FRAME_CAPACITY) * FRAME_SIZE;
+
+		buffer.putLong(base + FRAME_TIME_NANOS, nowNanoTime - startNanoTime);
+		buffer.putInt(base + FRAME_LOOP_MICROS, (int) ((nowNanoTime - previousFrameNanoTime) / 1000L));
+		buffer.putInt(base + FRAME_MODE, mode);
+		buffer.putInt(base + FRAME_ACTION_NUMBER, actionNumber);
+		buffer.putInt(base + FRAME_ACTION_TYPE, actionType);
+
+		r.imu().readSnapshot(imuSnapshot);
+		buffer.putFloat(base + FRAME_HEADING, (float) imuSnapshot.heading);
+		buffer.putFloat(base + FRAME_HEADING_MVG_AVG_50, (float) imuSnapshot.headingMvgAvg50);
+		buffer.putFloat(base + FRAME_HEADING_MVG_AVG_90, (float) imuSnapshot.headingMvgAvg90);
+		buffer.putFloat(base + FRAME_HEADING_BEST_TWO_OF_THREE, (float) imuSnapshot.headingBestTwoOfThree);
+
+		// most recent MotorHelper.drive() command; in teleop these are the
+		// JoystickHelper targets
+		MotorHelper motors = r.motors();
+		buffer.putFloat(base + FRAME_TARGET_DRIVE_DIRECTION, (float) motors.getTargetDriveDirection());
+		buffer.putFloat(base + FRAME_DRIVE_SPEED, (float) motors.getDriveSpeed());
+		buffer.putFloat(base + FRAME_TARGET_ORIENTATION_ANGLE, (float) motors.getTargetOrientationAngle());
+		buffer.putFloat(base + FRAME_TURN_SPEED, (float) motors.getTurnSpeed());
+
+		for (int i = 0; i < MOTOR_CHANNELS; i++) {
+			buffer.putFloat(base + FRAME_MOTOR_OUTPUTS + 4 * i, (float) motors.getOutput(i));
+		}
+
+		framesWritten++;
+		buffer.putLong(HEADER_FRAMES_WRITTEN, framesWritten);
+		previousFrameNanoTime = nowNanoTime;
+	}
+
+	/**
+	 * Picks the next file name in the directory (one past the highest number
+	 * present), and deletes the oldest files so that at most MAX_FILES remain.
+	 */
+	private static File nextFile(File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("cannot create directory " + directory);
+		}
+
+		int highest = 0;
+		File[] existing = directory.listFiles();
+		if (existing != null) {
+			for (File f : existing) {
+				int number = getFileNumber(f);
+				if (number > highest) {
+					highest = number;
+				}
+			}
+			for (File f : existing) {
+				int number = getFileNumber(f);
+				if (number > 0 && number <= highest + 1 - MAX_FILES) {
+					f.delete();
+				}
+			}
+		}
+
+		return new File(directory, String.format("blackbox-%04d.bin", highest + 1));
+	}
+
+	/**
+	 * Returns the number of a black box file name, or 0 if it's not one.
+	 */
+	private static int getFileNumber(File f) {
+		String name = f.getName();
+		if (!name.startsWith("blackbox-") || !name.endsWith(".bin")) {
+			return 0;
+		}
+		try {
+			return Integer.parseInt(name.substring(9, name.length() - 4));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+}
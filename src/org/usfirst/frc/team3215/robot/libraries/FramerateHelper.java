@@ -18,7 +18,7 @@ public class FramerateHelper {
 	}
 
 	public boolean run() {
-		long currentTime = System.currentTimeMillis();
+		long currentTime = r.timeMillis();
 		long elapsedTime = currentTime - lastStartTime;
 
 		if (elapsedTime < FRAME_TIME) {
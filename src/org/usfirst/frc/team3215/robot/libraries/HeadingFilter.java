@@ -0,0 +1,28 @@
+package org.usfirst.frc.team3215.robot.libraries;
+
+/**
+ * One stage of heading filtering, run by the ImuThread for every IMU sample.
+ * Stages can be chained (see HeadingFilters.chain). Implementations must not
+ * allocate in update() or reset().
+ */
+public interface HeadingFilter {
+
+	/**
+	 * Feed the next sample, returns the filtered heading.
+	 * 
+	 * @param heading
+	 *            The measured heading (or the output of the previous stage) in
+	 *            degrees.
+	 * @param rate
+	 *            The rate of turn in degrees per second.
+	 * @param dt
+	 *            Seconds since the previous sample (0 for the first sample).
+	 */
+	double update(double heading, double rate, double dt);
+
+	/**
+	 * Forget all history and restart at the given heading.
+	 */
+	void reset(double heading);
+
+}
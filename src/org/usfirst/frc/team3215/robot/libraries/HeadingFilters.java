@@ -0,0 +1,264 @@
+package org.usfirst.frc.team3215.robot.libraries;
+
+/**
+ * Ready-made heading filter stages. Combine them with chain(), e.g.
+ * chain(rejectOutliers(720, 3), medianOf(5)).
+ */
+public class HeadingFilters {
+
+	/**
+	 * Exponential moving average: output = output * weight + heading * (1 -
+	 * weight). A weight of 0.9 changes slowly, 0.5 changes fast.
+	 */
+	public static HeadingFilter ema(double weight) {
+		return new Ema(weight);
+	}
+
+	/**
+	 * Median of the most recent n samples.
+	 */
+	public static HeadingFilter medianOf(int n) {
+		return new Median(n);
+	}
+
+	/**
+	 * Out of the three most recent samples, drop the one farthest from the other
+	 * two, and average the other two.
+	 */
+	public static HeadingFilter bestTwoOfThree() {
+		return new BestTwoOfThree();
+	}
+
+	/**
+	 * One-dimensional Kalman filter that predicts with the rate of turn and
+	 * corrects with the measured heading.
+	 *
+	 * @param processNoise
+	 *            How much the heading drifts from the rate prediction [degrees^2
+	 *            per second].
+	 * @param measurementNoise
+	 *            Variance of a heading measurement [degrees^2].
+	 */
+	public static HeadingFilter kalman(double processNoise, double measurementNoise) {
+		return new Kalman(processNoise, measurementNoise);
+	}
+
+	/**
+	 * Drops samples that imply a faster turn than maxRate (degrees/s) by holding
+	 * the last accepted heading. After maxRejects dropped samples in a row, the
+	 * next one is accepted anyway so the filter can't lock itself out.
+	 */
+	public static HeadingFilter rejectOutliers(double maxRate, int maxRejects) {
+		return new OutlierRejection(maxRate, maxRejects);
+	}
+
+	/**
+	 * Runs the given stages in order, each one fed with the output of the
+	 * previous one.
+	 */
+	public static HeadingFilter chain(HeadingFilter... stages) {
+		return new Chain(stages);
+	}
+
+	private static class Ema implements HeadingFilter {
+		private final double weight;
+		private double output = 0;
+
+		Ema(double weight) {
+			this.weight = weight;
+		}
+
+		@Override
+		public double update(double heading, double rate, double dt) {
+			output = output * weight + heading * (1. - weight);
+			return output;
+		}
+
+		@Override
+		public void reset(double heading) {
+			output = heading;
+		}
+	}
+
+	private static class Median implements HeadingFilter {
+		private final double[] samples;
+		private final double[] sorted;
+		private int count = 0;
+		private int next = 0;
+
+		Median(int n) {
+			samples = new double[Math.max(n, 1)];
+			sorted = new double[samples.length];
+		}
+
+		@Override
+		public double update(double heading, double rate, double dt) {
+			samples[next] = heading;
+			next = (next + 1) % samples.length;
+			if (count < samples.length) {
+				count++;
+			}
+
+			// insertion sort; n is small
+			for (int i = 0; i < count; i++) {
+				double value = samples[i];
+				int j = i - 1;
+				while (j >= 0 && sorted[j] > value) {
+					sorted[j + 1] = sorted[j];
+					j--;
+				}
+				sorted[j + 1] = value;
+			}
+
+			if ((count & 1) == 1) {
+				return sorted[count / 2];
+			} else {
+				return (sorted[count / 2 - 1] + sorted[count / 2]) / 2.;
+			}
+		}
+
+		@Override
+		public void reset(double heading) {
+			count = 0;
+			next = 0;
+		}
+	}
+
+	private static class BestTwoOfThree implements HeadingFilter {
+		private double headingPrev1 = 0; // previous heading
+		private double headingPrev2 = 0; // second previous heading
+
+		@Override
+		public double update(double heading, double rate, double dt) {
+			double result;
+
+			// Find the two measures that are closest to one another, and build
+			// their linear average.
+			double diff_0_1 = Math.abs(heading - headingPrev1);
+			double diff_0_2 = Math.abs(heading - headingPrev2);
+			double diff_1_2 = Math.abs(headingPrev2 - headingPrev1);
+			if (diff_0_1 < diff_0_2) {
+				if (diff_0_1 < diff_1_2) {
+					// current and most recent heading are closest to one another
+					result = (heading + headingPrev1) / 2.;
+				} else {
+					// current heading is outlier, take average of the previous ones
+					result = (headingPrev1 + headingPrev2) / 2.;
+				}
+			} else {
+				if (diff_0_2 < diff_1_2) {
+					// current and 2nd recent heading are closest
+					result = (heading + headingPrev2) / 2.;
+				} else {
+					// current heading is outlier, take average of the previous ones
+					result = (headingPrev1 + headingPrev2) / 2.;
+				}
+			}
+
+			headingPrev2 = headingPrev1;
+			headingPrev1 = heading;
+			return result;
+		}
+
+		@Override
+		public void reset(double heading) {
+			headingPrev1 = heading;
+			headingPrev2 = heading;
+		}
+	}
+
+	private static class Kalman implements HeadingFilter {
+		private final double processNoise;
+		private final double measurementNoise;
+		private double estimate = 0;
+		private double variance;
+		private boolean hasEstimate = false;
+
+		Kalman(double processNoise, double measurementNoise) {
+			this.processNoise = processNoise;
+			this.measurementNoise = measurementNoise;
+			this.variance = measurementNoise;
+		}
+
+		@Override
+		public double update(double heading, double rate, double dt) {
+			if (!hasEstimate) {
+				reset(heading);
+				return estimate;
+			}
+
+			// predict
+			estimate += rate * dt;
+			variance += processNoise * dt;
+
+			// correct
+			double gain = variance / (variance + measurementNoise);
+			estimate += gain * (heading - estimate);
+			variance *= (1. - gain);
+			return estimate;
+		}
+
+		@Override
+		public void reset(double heading) {
+			estimate = heading;
+			variance = measurementNoise;
+			hasEstimate = true;
+		}
+	}
+
+	private static class OutlierRejection implements HeadingFilter {
+		private final double maxRate;
+		private final int maxRejects;
+		private double accepted = 0;
+		private int rejects = 0;
+		private boolean hasAccepted = false;
+
+		OutlierRejection(double maxRate, int maxRejects) {
+			this.maxRate = maxRate;
+			this.maxRejects = maxRejects;
+		}
+
+		@Override
+		public double update(double heading, double rate, double dt) {
+			if (hasAccepted && rejects < maxRejects && Math.abs(heading - accepted) > maxRate * dt) {
+				rejects++;
+				return accepted;
+			}
+			accepted = heading;
+			hasAccepted = true;
+			rejects = 0;
+			return accepted;
+		}
+
+		@Override
+		public void reset(double heading) {
+			accepted = heading;
+			hasAccepted = true;
+			rejects = 0;
+		}
+	}
+
+	private static class Chain implements HeadingFilter {
+		private final HeadingFilter[] stages;
+
+		Chain(HeadingFilter[] stages) {
+			this.stages = stages.clone();
+		}
+
+		@Override
+		public double update(double heading, double rate, double dt) {
+			for (HeadingFilter stage : stages) {
+				heading = stage.update(heading, rate, dt);
+			}
+			return heading;
+		}
+
+		@Override
+		public void reset(double heading) {
+			for (HeadingFilter stage : stages) {
+				stage.reset(heading);
+			}
+		}
+	}
+
+}
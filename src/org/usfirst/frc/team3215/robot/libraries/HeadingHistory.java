@@ -0,0 +1,117 @@
+package org.usfirst.frc.team3215.robot.libraries;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size history of (timestamp, heading, rate of turn) samples, to look up
+ * where the robot was pointing at a time in the past (e.g. when a camera frame
+ * was taken). Samples are kept in preallocated arrays of raw double bits.
+ * <p>
+ * One thread may add samples, any number of threads may read at the same time;
+ * neither side takes a lock or allocates. Readers only look at the newest half
+ * of the buffer and check afterwards that the writer hasn't reached the
+ * samples they used, retrying otherwise. The array elements are read and
+ * written with volatile semantics (AtomicLongArray), so that check can't be
+ * reordered before the reads it vouches for.
+ */
+public class HeadingHistory {
+
+	private final int capacity;
+	private final int mask;
+	private final AtomicLongArray timestamps; // FPGA time [s], raw double bits
+	private final AtomicLongArray headings; // [degrees], raw double bits
+	private final AtomicLongArray rates; // [degrees/s], raw double bits
+
+	private volatile long written = 0; // number of samples ever added
+
+	/**
+	 * @param capacity
+	 *            Number of samples kept; rounded up to a power of two. Lookups
+	 *            reach back over the newest half of it.
+	 */
+	public HeadingHistory(int capacity) {
+		this.capacity = Integer.highestOneBit(Math.max(capacity, 4) - 1) << 1;
+		mask = this.capacity - 1;
+		timestamps = new AtomicLongArray(this.capacity);
+		headings = new AtomicLongArray(this.capacity);
+		rates = new AtomicLongArray(this.capacity);
+	}
+
+	/**
+	 * Adds a sample. Timestamps must be increasing. Writer thread only.
+	 */
+	public void add(double timestamp, double heading, double rate) {
+		long index = written;
+		int slot = (int) (index & mask);
+		timestamps.set(slot, Double.doubleToRawLongBits(timestamp));
+		headings.set(slot, Double.doubleToRawLongBits(heading));
+		rates.set(slot, Double.doubleToRawLongBits(rate));
+		written = index + 1; // publish
+	}
+
+	/**
+	 * The heading at the given time, linearly interpolated between the two
+	 * samples around it. Times before the oldest (or after the newest) sample
+	 * return the oldest (or newest) heading. Returns NaN if there are no samples.
+	 */
+	public double getHeadingAt(double timestamp) {
+		return lookup(timestamp, headings);
+	}
+
+	/**
+	 * The rate of turn at the given time; see getHeadingAt().
+	 */
+	public double getRateAt(double timestamp) {
+		return lookup(timestamp, rates);
+	}
+
+	private double lookup(double timestamp, AtomicLongArray values) {
+		while (true) {
+			long end = written;
+			if (end == 0) {
+				return Double.NaN;
+			}
+			long first = Math.max(0, end - capacity / 2);
+			long last = end - 1;
+
+			double result;
+			if (timestamp <= get(timestamps, first)) {
+				result = get(values, first);
+			} else if (timestamp >= get(timestamps, last)) {
+				result = get(values, last);
+			} else {
+				// binary search for the last sample at or before the timestamp
+				long lo = first;
+				long hi = last;
+				while (hi - lo > 1) {
+					long middle = (lo + hi) >>> 1;
+					if (get(timestamps, middle) <= timestamp) {
+						lo = middle;
+					} else {
+						hi = middle;
+					}
+				}
+				double t0 = get(timestamps, lo);
+				double t1 = get(timestamps, hi);
+				double fraction = (t1 > t0) ? (timestamp - t0) / (t1 - t0) : 0;
+				double v0 = get(values, lo);
+				result = v0 + fraction * (get(values, hi) - v0);
+			}
+
+			// the writer overwrites sample (written - capacity) next; if it got
+			// close to the oldest sample we looked at, the values may be torn
+			// (the volatile reads above happen before this one)
+			if (first > written - capacity + 1) {
+				return result;
+			}
+		}
+	}
+
+	/**
+	 * The value of the given sample (number since the start).
+	 */
+	private double get(AtomicLongArray values, long index) {
+		return Double.longBitsToDouble(values.get((int) (index & mask)));
+	}
+
+}
@@ -0,0 +1,24 @@
+package org.usfirst.frc.team3215.robot.libraries;
+
+/**
+ * One consistent set of values published by the ImuThread. Create one instance
+ * per consumer and fill it once per frame with ImuThread.readSnapshot().
+ */
+public class ImuSnapshot {
+
+	public double heading; // most recent heading
+	public double headingMvgAvg50; // moving exponential average at 50% weight (changes faster)
+	public double headingMvgAvg90; // moving exponential average at 90% weight (changes slowly)
+	public double headingBestTwoOfThree; // out of the three most recent measures, drop the outlier
+	public double timestamp; // FPGA time of the sample [s]
+	public long sequence; // increases by one with every published sample
+	public boolean imuIsInitialized;
+	public boolean imuIsCalibrated;
+
+	@Override
+	public String toString() {
+		return "ImuSnapshot [sequence=" + sequence + ", timestamp=" + timestamp + ", heading=" + heading
+				+ ", headingMvgAvg50=" + headingMvgAvg50 + ", headingMvgAvg90=" + headingMvgAvg90
+				+ ", headingBestTwoOfThree=" + headingBestTwoOfThree + "]";
+	}
+}
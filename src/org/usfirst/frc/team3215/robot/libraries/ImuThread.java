@@ -1,121 +1,296 @@
 package org.usfirst.frc.team3215.robot.libraries;
 
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.usfirst.frc.team3215.robot.hal.Dashboard;
 
 /**
  * Background thread that reads out the IMU periodically without holding up the
- * code. Next to the current heading, it also computes exponential moving
- * averages as well as "best two of three" averages.
+ * code. Next to the current heading, it also computes filtered headings. The
+ * exponential moving averages and "best two of three" averages are always
+ * there; further named filters (see HeadingFilters) can be added with
+ * addFilter() and read with getFiltered(). Every sample also moves the
+ * PoseEstimator on.
+ * <p>
+ * Results are published without locks: single values can be read with the
+ * getters, a consistent set of all values (from the same sample) with
+ * readSnapshot(). The IMU is never accessed while holding a lock.
  */
 public class ImuThread extends Thread {
 
-	private final Object HEADING_MUTEX = new Object();
+	// only held while computing/publishing, never while talking to the IMU;
+	// readers don't take it at all
+	private final Object STATE_MUTEX = new Object();
 
 	private final BNO055 imu;
 	private final LogHelper log;
-
+	private final Dashboard dashboard;
+	private final BNO055.HeadingSample headingSample = new BNO055.HeadingSample(); // IMU thread only
+	private final BNO055.SampleData sampleData = new BNO055.SampleData(); // IMU thread only
+	private final BNO055.CalData calData = new BNO055.CalData(); // IMU thread only
+	private final PoseEstimator pose;
+
+	// built-in filters
+	public final static String FILTER_MVG_AVG_50 = "mvgAvg50"; // moving exponential average at 50% weight
+	public final static String FILTER_MVG_AVG_90 = "mvgAvg90"; // moving exponential average at 90% weight
+	public final static String FILTER_BEST_TWO_OF_THREE = "bestTwoOfThree"; // drop the outlier of three
+	private final static int MAX_FILTERS = 16;
+	private final static long SAMPLE_TIMEOUT_MILLIS = 100;
+	private long polledSampleCount = 0; // poll() only
+	private final int filterIdMvgAvg50;
+	private final int filterIdMvgAvg90;
+	private final int filterIdBestTwoOfThree;
+
+	// internal state, guarded by STATE_MUTEX
 	private double heading = 0; // most recent heading
-	private double headingPrev1 = 0; // previous heading
-	private double headingPrev2 = 0; // second previous heading
-	private double headingMvgAvg50 = 0; // moving exponential average at 50% weight (changes faster)
-	private double headingMvgAvg90 = 0; // moving exponential average at 90% weight (changes slowly)
-	private double headingBestTwoOfThree = 0; // out of the three most recent measures, drop the outlier
+	private double timestamp = 0; // FPGA time of the most recent sample
+	private final HeadingFilter[] filters = new HeadingFilter[MAX_FILTERS];
+	private final String[] filterNames = new String[MAX_FILTERS];
+	private final double[] filterOutputs = new double[MAX_FILTERS];
+	private int filterCount = 0;
+	private long fusionRestarts = 0; // of the IMU, as of the most recent sample
+
+	private volatile double customCalibrationOffset = 0; // set this to calibrate "0" as starting position
 
-	private double customCalibrationOffset = 0; // set this to calibrate "0" as starting position
+	// recent raw headings (without calibration offset), about 5 seconds worth
+	private final static int HEADING_HISTORY_SIZE = 512;
+	private final HeadingHistory headingHistory = new HeadingHistory(HEADING_HISTORY_SIZE);
 
 	private boolean imuIsInitialized = false;
 	private boolean imuIsCalibrated = false;
 
+	// published state (sequence lock): the sequence is odd while values are being
+	// written, and readers retry until they saw the same even sequence before and
+	// after reading
+	private volatile long publishedSequence = 0;
+	private volatile double publishedHeading = 0;
+	private final AtomicLongArray publishedFilterOutputs = new AtomicLongArray(MAX_FILTERS); // raw double bits
+	private volatile double publishedTimestamp = 0;
+	private volatile boolean publishedImuIsInitialized = false;
+	private volatile boolean publishedImuIsCalibrated = false;
+
 	/**
 	 * Pass in the IMU object here. Initialization is expected to have been
-	 * initiated outside.
+	 * initiated outside. The pose estimator gets every sample.
 	 */
-	public ImuThread(LogHelper log, BNO055 imu) {
+	public ImuThread(LogHelper log, BNO055 imu, Dashboard dashboard, PoseEstimator pose) {
 		this.log = log;
 		this.imu = imu;
+		this.dashboard = dashboard;
+		this.pose = pose;
 
 		log.print("ImuThread constructor");
+
+		filterIdMvgAvg50 = addFilter(FILTER_MVG_AVG_50, HeadingFilters.ema(0.5));
+		filterIdMvgAvg90 = addFilter(FILTER_MVG_AVG_90, HeadingFilters.ema(0.9));
+		filterIdBestTwoOfThree = addFilter(FILTER_BEST_TWO_OF_THREE, HeadingFilters.bestTwoOfThree());
+	}
+
+	/**
+	 * Adds a named heading filter, fed with every IMU sample from now on. Returns
+	 * the id to read its output with getFiltered(), or -1 if there are too many
+	 * filters.
+	 */
+	public int addFilter(String name, HeadingFilter filter) {
+		synchronized (STATE_MUTEX) {
+			if (filterCount >= MAX_FILTERS) {
+				log.print("Warning: PANIC - too many IMU heading filters; ignoring " + name);
+				return -1;
+			}
+			filter.reset(heading);
+			filters[filterCount] = filter;
+			filterNames[filterCount] = name;
+			filterOutputs[filterCount] = heading;
+			publishedFilterOutputs.set(filterCount, Double.doubleToRawLongBits(heading));
+			return filterCount++;
+		}
+	}
+
+	/**
+	 * Returns the id of the named filter, or -1 if there is none. Look ids up once
+	 * (e.g. during init), and then use getFiltered(id) in the periodic code.
+	 */
+	public int getFilterId(String name) {
+		synchronized (STATE_MUTEX) {
+			for (int i = 0; i < filterCount; i++) {
+				if (filterNames[i].equals(name)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Most recent output of the filter with the given id (see getFilterId). NaN
+	 * for unknown ids.
+	 */
+	public double getFiltered(int filterId) {
+		if (filterId < 0 || filterId >= MAX_FILTERS) {
+			return Double.NaN;
+		}
+		return Double.longBitsToDouble(publishedFilterOutputs.get(filterId));
 	}
 
 	@Override
 	public void run() {
 
+		long sampleCount = 0;
+
 		while (!Thread.interrupted()) {
 
-			synchronized (HEADING_MUTEX) {
+			// wait for the IMU to deliver a new sample; the timeout keeps the
+			// status checks going while the IMU is still initializing
+			long previousSampleCount = sampleCount;
+			sampleCount = imu.awaitSample(previousSampleCount, SAMPLE_TIMEOUT_MILLIS);
+			update(sampleCount != previousSampleCount);
+		}
 
-				if (!imu.isSensorPresent()) {
-					log.print("Warning: PANIC - IMU not present? check wiring");
-				}
+	}
+
+	/**
+	 * Processes the most recent IMU sample, if there is a new one since the last
+	 * call. Only for use without start(), e.g. by a simulation that steps its own
+	 * clock and polls the IMU itself.
+	 */
+	public void poll() {
+		long sampleCount = imu.getSampleCount();
+		boolean newSample = (sampleCount != polledSampleCount);
+		polledSampleCount = sampleCount;
+		update(newSample);
+	}
+
+	/**
+	 * One round of the IMU thread: status checks, and for a new sample, the
+	 * filters.
+	 */
+	private void update(boolean newSample) {
+
+		// (1) talk to the IMU (no lock held)
+
+		if (!imu.isSensorPresent()) {
+			log.print("Warning: PANIC - IMU not present? check wiring");
+		}
+
+		boolean initialized = imu.isInitialized();
+		if (!imuIsInitialized && initialized) {
+			// IMU has finished initialization
+			log.print("IMU has finished initialization");
+			log.print("- IMU init timeline: " + imu.getInitTimeline());
+		}
+
+		boolean calibrated = imuIsCalibrated;
+		if (!imuIsCalibrated && imu.isCalibrated()) {
+			// IMU has finished calibration and is ready for accurate readings
+			calibrated = true;
+			imu.getCalibration(calData);
+			log.print("IMU is calibrated and ready for accurate readings");
+			log.print("- IMU Temp: ", imu.getTemp());
+			log.print("- IMU " + calData);
+		}
 
-				if (!imuIsInitialized && imu.isInitialized()) {
-					// IMU has finished initialization
-					imuIsInitialized = true;
-					log.print("IMU has finished initialization");
+		imu.getHeadingSample(headingSample);
+		double rawHeading = headingSample.heading;
+		double rawHeadingRate = imu.getHeadingRate();
+		double now = headingSample.timestamp;
+		double forwardAcceleration = Double.NaN;
+		double leftAcceleration = Double.NaN;
+		if (imu.getSample(sampleData)) {
+			forwardAcceleration = sampleData.linearAccelX;
+			leftAcceleration = sampleData.linearAccelY;
+		}
+
+		// (2) compute and publish
+
+		synchronized (STATE_MUTEX) {
+
+			imuIsInitialized = initialized;
+			imuIsCalibrated = calibrated;
+
+			if (imuIsInitialized && newSample) {
+
+				// rate of turn since the previous sample, and remember the sample
+				double newHeading = -rawHeading - customCalibrationOffset;
+				if (headingSample.fusionRestarts != fusionRestarts) {
+					// the IMU has restarted its sensor fusion (calibration profile read
+					// while disabled) and its heading jumped: the robot was standing
+					// still, so carry our heading over (the heading history from before
+					// stays off by the jump)
+					fusionRestarts = headingSample.fusionRestarts;
+					customCalibrationOffset += newHeading - heading;
+					newHeading = heading;
+					log.print("IMU sensor fusion restarted; heading carried over at " + heading);
+				}
+				double dt = 0;
+				double rate = 0;
+				if (timestamp > 0 && now > timestamp) {
+					dt = now - timestamp;
+					rate = (newHeading - heading) / dt;
+				}
+				if (imu.isBurstMode()) {
+					// the gyro knows better (our heading is the negated IMU heading)
+					rate = -rawHeadingRate;
 				}
+				headingHistory.add(now, -rawHeading, rate);
 
-				if (!imuIsCalibrated && imu.isCalibrated()) {
-					// IMU has finished calibration and is ready for accurate readings
-					imuIsCalibrated = true;
-					BNO055.CalData imuCalibration = imu.getCalibration();
-					log.print("IMU is calibrated and ready for accurate readings");
-					log.print("- IMU Temp: " + imu.getTemp());
-					log.print("- IMU " + imuCalibration);
+				heading = newHeading;
+				timestamp = now;
+
+				// run all filters
+				for (int i = 0; i < filterCount; i++) {
+					filterOutputs[i] = filters[i].update(heading, rate, dt);
 				}
 
-				if (imuIsInitialized) {
-
-					headingPrev2 = headingPrev1;
-					headingPrev1 = heading;
-					heading = -imu.getHeading() - customCalibrationOffset;
-
-					// calculate the fast-moving exponential average
-					headingMvgAvg50 = headingMvgAvg50 * 0.5 + heading * 0.5;
-
-					// calculate the slow-moving (calibration) exponential average
-					headingMvgAvg90 = headingMvgAvg90 * 0.9 + heading * 0.1;
-
-					// Calculate the "best two of three" average: Find the two
-					// measures that are closest to one another, and build their
-					// linear average.
-					double diff_0_1 = Math.abs(heading - headingPrev1);
-					double diff_0_2 = Math.abs(heading - headingPrev2);
-					double diff_1_2 = Math.abs(headingPrev2 - headingPrev1);
-					if (diff_0_1 < diff_0_2) {
-						if (diff_0_1 < diff_1_2) {
-							// current and most recent heading are closest to one another
-							headingBestTwoOfThree = (heading + headingPrev1) / 2.;
-						} else {
-							// current heading is outlier, take average of the previous ones
-							headingBestTwoOfThree = (headingPrev1 + headingPrev2) / 2.;
-						}
-					} else {
-						if (diff_0_2 < diff_1_2) {
-							// current and 2nd recent heading are closest
-							headingBestTwoOfThree = (heading + headingPrev2) / 2.;
-						} else {
-							// current heading is outlier, take average of the previous ones
-							headingBestTwoOfThree = (headingPrev1 + headingPrev2) / 2.;
-						}
-					}
-
-				} // ... if initialized
-
-			} // ... synchronized
-
-			SmartDashboard.putBoolean("IMU initialized", imuIsInitialized);
-			SmartDashboard.putNumber("heading", ((int) (100 * heading)) / 100.);
-			SmartDashboard.putNumber("headingMvgAvg90", ((int) (100 * headingMvgAvg90)) / 100.);
-			SmartDashboard.putNumber("headingBestTwoOfThree", ((int) (100 * headingBestTwoOfThree)) / 100.);
-
-			try {
-				Thread.sleep(40); // must be larger than 20 [ms] due to sensor limitations
-			} catch (InterruptedException e) {
-				// ignore
-			}
+				pose.update(now, heading, rate, forwardAcceleration, leftAcceleration);
 
+			} // ... if initialized
+
+			publish();
+
+		} // ... synchronized
+
+		dashboard.putBoolean("IMU initialized", publishedImuIsInitialized);
+		dashboard.putNumber("heading", ((int) (100 * publishedHeading)) / 100.);
+		dashboard.putNumber("headingMvgAvg90", ((int) (100 * getHeadingMvgAvg90())) / 100.);
+		dashboard.putNumber("headingBestTwoOfThree", ((int) (100 * getHeadingBestTwoOfThree())) / 100.);
+		dashboard.putNumber("poseX", ((int) (100 * pose.getX())) / 100.);
+		dashboard.putNumber("poseY", ((int) (100 * pose.getY())) / 100.);
+
+	}
+
+	/**
+	 * Copies the internal state to the published state. Must hold STATE_MUTEX.
+	 */
+	private void publish() {
+		long sequence = publishedSequence;
+		publishedSequence = sequence + 1; // odd: writing
+		publishedHeading = heading;
+		for (int i = 0; i < filterCount; i++) {
+			publishedFilterOutputs.set(i, Double.doubleToRawLongBits(filterOutputs[i]));
 		}
+		publishedTimestamp = timestamp;
+		publishedImuIsInitialized = imuIsInitialized;
+		publishedImuIsCalibrated = imuIsCalibrated;
+		publishedSequence = sequence + 2; // even: done
+	}
 
+	/**
+	 * Fills the given snapshot with a consistent set of values (all from the same
+	 * sample). Never blocks and does not allocate.
+	 */
+	public void readSnapshot(ImuSnapshot snapshot) {
+		long sequence;
+		do {
+			sequence = publishedSequence;
+			snapshot.heading = publishedHeading;
+			snapshot.headingMvgAvg50 = getFiltered(filterIdMvgAvg50);
+			snapshot.headingMvgAvg90 = getFiltered(filterIdMvgAvg90);
+			snapshot.headingBestTwoOfThree = getFiltered(filterIdBestTwoOfThree);
+			snapshot.timestamp = publishedTimestamp;
+			snapshot.imuIsInitialized = publishedImuIsInitialized;
+			snapshot.imuIsCalibrated = publishedImuIsCalibrated;
+		} while (((sequence & 1) != 0) || (sequence != publishedSequence));
+		snapshot.sequence = sequence >> 1;
 	}
 
 	/**
@@ -124,19 +299,21 @@ public class ImuThread extends Thread {
 	 * degree position.
 	 */
 	public void calibrateZeroHeading() {
-		synchronized (HEADING_MUTEX) {
-			customCalibrationOffset = headingMvgAvg90;
+		synchronized (STATE_MUTEX) {
+			customCalibrationOffset += filterOutputs[filterIdMvgAvg90];
 			heading = 0;
-			headingPrev1 = 0;
-			headingPrev2 = 0;
-			headingMvgAvg50 = 0;
-			headingMvgAvg90 = 0;
-			headingBestTwoOfThree = 0;
+			for (int i = 0; i < filterCount; i++) {
+				filters[i].reset(0);
+				filterOutputs[i] = 0;
+			}
+			publish();
 		}
 	}
 
 	public void resetZeroHeadingCalibration() {
-		customCalibrationOffset = 0;
+		synchronized (STATE_MUTEX) {
+			customCalibrationOffset = 0;
+		}
 	}
 
 	/**
@@ -144,27 +321,21 @@ public class ImuThread extends Thread {
 	 * full turns the value here will be 720.
 	 */
 	public double getHeading() {
-		synchronized (HEADING_MUTEX) {
-			return heading;
-		}
+		return publishedHeading;
 	}
 
 	/**
 	 * Fast moving exponential average. Use for simple smoothing.
 	 */
 	public double getHeadingMvgAvg50() {
-		synchronized (HEADING_MUTEX) {
-			return headingMvgAvg50;
-		}
+		return getFiltered(filterIdMvgAvg50);
 	}
 
 	/**
 	 * Slow moving exponential average. Use for calibration.
 	 */
 	public double getHeadingMvgAvg90() {
-		synchronized (HEADING_MUTEX) {
-			return headingMvgAvg90;
-		}
+		return getFiltered(filterIdMvgAvg90);
 	}
 
 	/**
@@ -173,18 +344,38 @@ public class ImuThread extends Thread {
 	 * average of the other two.
 	 */
 	public double getHeadingBestTwoOfThree() {
-		synchronized (HEADING_MUTEX) {
-			return headingBestTwoOfThree;
-		}
+		return getFiltered(filterIdBestTwoOfThree);
+	}
+
+	/**
+	 * Heading (as in getHeading()) at the given FPGA time, interpolated between
+	 * the samples around it. Use this to find out where the robot pointed when
+	 * e.g. a camera frame was taken. Reaches back about five seconds; returns NaN
+	 * before the first sample.
+	 */
+	public double getHeadingAt(double fpgaTimestamp) {
+		return headingHistory.getHeadingAt(fpgaTimestamp) - customCalibrationOffset;
+	}
+
+	/**
+	 * Rate of turn [degrees/s] at the given FPGA time; see getHeadingAt().
+	 */
+	public double getHeadingRateAt(double fpgaTimestamp) {
+		return headingHistory.getRateAt(fpgaTimestamp);
 	}
 
 	/**
 	 * True if internal initialization of the IMU has completed.
 	 */
 	public boolean getImuIsInitialized() {
-		synchronized (HEADING_MUTEX) {
-			return imuIsInitialized;
-		}
+		return publishedImuIsInitialized;
+	}
+
+	/**
+	 * True once the IMU has reported full calibration (stays true from then on).
+	 */
+	public boolean getImuIsCalibrated() {
+		return publishedImuIsCalibrated;
 	}
 
 }
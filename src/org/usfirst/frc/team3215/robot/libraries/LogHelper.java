@@ -1,39 +1,81 @@
 package org.usfirst.frc.team3215.robot.libraries;
 
-import java.util.Date;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Set;
-
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log output that never holds up the robot code. Messages are put into a
+ * preallocated ring buffer (many writers, one reader) and written to System.out
+ * in batches by a background thread. If the buffer is full, messages are
+ * dropped and counted, and the count is reported with the next batch.
+ * <p>
+ * A log record is just a timestamp, a (constant) message and optionally one
+ * number; turning it into text only happens on the log thread. Pass numbers
+ * via print(message, value) instead of concatenating them in the robot loop.
+ * <p>
+ * Output goes to System.out, or to the stream given to the constructor.
+ */
 public class LogHelper {
 
-	private final Object LOG_MUTEX = new Object();
-
-	private final static int MAX_STACK_SIZE = 60;
-	private final static long TIME_WAIT_PER_MESSAGE_MILLIS = 100;
-
-	private long startDateTime = -1;
-	private Set<String> logOnceMessages = new HashSet<String>();
-	Queue<String> fifoMessages = new LinkedList<String>();
-
+	private final Object LOG_ONCE_MUTEX = new Object();
+
+	private final static int LOG_ONCE_CAPACITY = 512; // max number of messages remembered as logged once
+	private final static int RING_SIZE = 1024; // must be a power of two
+	private final static int RING_MASK = RING_SIZE - 1;
+	private final static int MAX_BATCH_SIZE = 64; // max number of messages per System.out call
+	private final static long TIME_WAIT_PER_BATCH_MILLIS = 100;
+
+	private final static byte VALUE_NONE = 0;
+	private final static byte VALUE_LONG = 1;
+	private final static byte VALUE_DOUBLE = 2;
+
+	private volatile long startNanoTime = System.nanoTime();
+	private final LongHashSet logOnceMessages = new LongHashSet(LOG_ONCE_CAPACITY);
+
+	// ring buffer: a writer claims a slot by advancing "claimed", fills it, and
+	// then publishes it by setting the slot's sequence to its position + 1. The
+	// log thread is the only one advancing "drained".
+	private final long[] ringTimes = new long[RING_SIZE]; // nanoseconds since resetTimer()
+	private final String[] ringMessages = new String[RING_SIZE];
+	private final byte[] ringValueTypes = new byte[RING_SIZE];
+	private final long[] ringValues = new long[RING_SIZE]; // doubles are stored as raw bits
+	private final AtomicLongArray ringPublished = new AtomicLongArray(RING_SIZE);
+	private final AtomicLong claimed = new AtomicLong(0);
+	private volatile long drained = 0;
+	private final AtomicLong droppedMessages = new AtomicLong(0);
+	private long droppedMessagesReported = 0;
+
+	private final PrintStream output;
 	Thread logThread;
 
 	public LogHelper() {
+		this(System.out);
+	}
+
+	/**
+	 * @param output
+	 *            Where to write the log; null discards all messages (and starts no
+	 *            log thread).
+	 */
+	public LogHelper(PrintStream output) {
+		this.output = output;
+		if (output == null) {
+			return;
+		}
 
 		// write actual System.out from a queue since it'll randomly drop
-		// output if there's too much
+		// output if there's too much; one println per batch keeps it calm
 		logThread = new Thread(() -> {
+			StringBuilder batch = new StringBuilder(4096);
 			while (!Thread.interrupted()) {
 
-				if (!fifoMessages.isEmpty()) {
-					System.out.println(fifoMessages.remove());
-				}
+				drainBatch(batch);
 
 				try {
-					Thread.sleep(TIME_WAIT_PER_MESSAGE_MILLIS); // this limits the number of messages per second
+					Thread.sleep(TIME_WAIT_PER_BATCH_MILLIS); // this limits the number of System.out calls per second
 				} catch (InterruptedException e) {
-					e.printStackTrace();
+					break;
 				}
 			}
 		});
@@ -42,64 +84,172 @@ public class LogHelper {
 	}
 
 	/**
-	 * Write a message to the log output.
+	 * Write a message to the log output. Never blocks; if the log buffer is full,
+	 * the message is dropped (and counted, see getDroppedMessages()).
 	 */
 	public void print(String message) {
-		synchronized (LOG_MUTEX) {
-			if (fifoMessages.size() > MAX_STACK_SIZE) {
-				// drop message silently
-			} else if (fifoMessages.size() == MAX_STACK_SIZE) {
-				fifoMessages.add(getTimeDisplay() + " " + message + "\n Warning: PANIC - fifoMessages.size() is max size ("
-						+ MAX_STACK_SIZE + "); messages will be dropped");
-			} else {
-				fifoMessages.add(getTimeDisplay() + " " + message);
-			}
+		record(message, VALUE_NONE, 0);
+	}
+
+	/**
+	 * Write a message followed by a number to the log output, e.g.
+	 * print("elapsed milliseconds: ", elapsed). The number is only converted to
+	 * text on the log thread.
+	 */
+	public void print(String message, long value) {
+		record(message, VALUE_LONG, value);
+	}
+
+	/**
+	 * Write a message followed by a number to the log output, e.g.
+	 * print("heading: ", heading). The number is only converted to text on the
+	 * log thread.
+	 */
+	public void print(String message, double value) {
+		record(message, VALUE_DOUBLE, Double.doubleToRawLongBits(value));
+	}
+
+	private void record(String message, byte valueType, long value) {
+		if (output == null) {
+			return;
 		}
+		long time = System.nanoTime() - startNanoTime;
+
+		long position;
+		do {
+			position = claimed.get();
+			if (position - drained >= RING_SIZE) {
+				droppedMessages.incrementAndGet();
+				return;
+			}
+		} while (!claimed.compareAndSet(position, position + 1));
+
+		int slot = (int) (position & RING_MASK);
+		ringTimes[slot] = time;
+		ringMessages[slot] = message;
+		ringValueTypes[slot] = valueType;
+		ringValues[slot] = value;
+		ringPublished.lazySet(slot, position + 1);
 	}
 
 	/**
-	 * Prints a message to the log, but only once.
+	 * Prints a message to the log, but only once. Messages are told apart by
+	 * their hash code, which String caches, so for constant messages this costs
+	 * next to nothing.
 	 */
 	public void printOnce(String message) {
-		synchronized (LOG_MUTEX) {
-			if (logOnceMessages.add(message)) {
-				print(message);
-				if (logOnceMessages.size() > MAX_STACK_SIZE) {
-					print("Warning: PANIC - logOnceMessages is greater than max size (" + MAX_STACK_SIZE
-							+ "); discarding old set");
-					resetLogOnceMessages();
-				}
-			}
+		if (addLogOnce(LongHashSet.mix(message.hashCode()))) {
+			print(message);
+		}
+	}
+
+	/**
+	 * Prints a message followed by a number to the log, but only once per
+	 * combination of message and number. Use this instead of printOnce(message +
+	 * value) in the robot loop.
+	 */
+	public void printOnce(String message, long value) {
+		if (addLogOnce(LongHashSet.mix(message.hashCode()) + LongHashSet.mix(value))) {
+			print(message, value);
+		}
+	}
+
+	/**
+	 * Prints a message to the log, but only once per id. The id is chosen by the
+	 * caller and must be unique for the message.
+	 */
+	public void printOnce(long id, String message) {
+		if (addLogOnce(~LongHashSet.mix(id))) {
+			print(message);
 		}
 	}
 
+	private boolean addLogOnce(long key) {
+		synchronized (LOG_ONCE_MUTEX) {
+			return logOnceMessages.add(key);
+		}
+	}
+
+	/**
+	 * Number of messages dropped so far because the log buffer was full.
+	 */
+	public long getDroppedMessages() {
+		return droppedMessages.get();
+	}
+
 	/**
 	 * Set the 0:0:0 time to now.
 	 */
 	public void resetTimer() {
-		startDateTime = (new Date()).getTime();
+		startNanoTime = System.nanoTime();
 	}
 
 	/**
 	 * Clears out the set of messages logged once so that they can be logged again.
 	 */
 	public void resetLogOnceMessages() {
-		synchronized (LOG_MUTEX) {
-			logOnceMessages = new HashSet<String>();
+		synchronized (LOG_ONCE_MUTEX) {
+			logOnceMessages.clear();
 		}
 	}
 
-	private String getTimeDisplay() {
-		if (startDateTime < 0) {
-			resetTimer();
+	/**
+	 * Called from the log thread only. Takes all published messages (up to the
+	 * batch size) off the ring buffer and writes them out in one go.
+	 */
+	private void drainBatch(StringBuilder batch) {
+		batch.setLength(0);
+
+		long position = drained;
+		int count = 0;
+		while (count < MAX_BATCH_SIZE) {
+			int slot = (int) (position & RING_MASK);
+			if (ringPublished.get(slot) != position + 1) {
+				break; // not (yet) published
+			}
+			appendTimeDisplay(batch, ringTimes[slot]);
+			batch.append(' ').append(ringMessages[slot]);
+			if (ringValueTypes[slot] == VALUE_LONG) {
+				batch.append(ringValues[slot]);
+			} else if (ringValueTypes[slot] == VALUE_DOUBLE) {
+				batch.append(Double.longBitsToDouble(ringValues[slot]));
+			}
+			batch.append('\n');
+			ringMessages[slot] = null;
+			position++;
+			count++;
+		}
+		drained = position;
+
+		long dropped = droppedMessages.get();
+		if (dropped != droppedMessagesReported) {
+			batch.append("Warning: PANIC - log buffer was full; ").append(dropped - droppedMessagesReported)
+					.append(" messages dropped (").append(dropped).append(" total)\n");
+			droppedMessagesReported = dropped;
+		}
+
+		if (batch.length() > 0) {
+			batch.setLength(batch.length() - 1); // println adds the last line break
+			output.println(batch);
+		}
+	}
+
+	/**
+	 * Appends the time as minutes:seconds:milliseconds.
+	 */
+	private static void appendTimeDisplay(StringBuilder sb, long nanosSince) {
+		long millisSince = nanosSince / 1000000L;
+		if (millisSince < 0) {
+			// logged while the timer was being reset
+			sb.append('-');
+			millisSince = -millisSince;
 		}
-		long nowDateTime = (new Date()).getTime() - startDateTime;
-		long minutesSince = nowDateTime / 600000L;
-		nowDateTime -= (minutesSince * 60000L);
-		long secondsSince = nowDateTime / 1000L;
-		nowDateTime -= (secondsSince) * 1000L;
+		long minutesSince = millisSince / 60000L;
+		millisSince -= minutesSince * 60000L;
+		long secondsSince = millisSince / 1000L;
+		millisSince -= secondsSince * 1000L;
 
-		return "" + minutesSince + ":" + secondsSince + ":" + nowDateTime;
+		sb.append(minutesSince).append(':').append(secondsSince).append(':').append(millisSince);
 	}
 
 }
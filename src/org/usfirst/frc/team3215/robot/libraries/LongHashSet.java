@@ -0,0 +1,108 @@
+package org.usfirst.frc.team3215.robot.libraries;
+
+import java.util.Arrays;
+
+/**
+ * Fixed capacity set of long keys (e.g. hashes) that never allocates or grows.
+ * Uses open addressing; a key can only live within a small window of slots
+ * starting at its hash position. If that window is full, the least recently
+ * used key in the window is evicted to make room. Not thread safe.
+ */
+public class LongHashSet {
+
+	private final static int PROBE_WINDOW = 8;
+	private final static long EMPTY = 0;
+	private final static long EMPTY_REPLACEMENT = 0x9E3779B97F4A7C15L; // stands in for key 0
+
+	private final long[] keys;
+	private final long[] lastUsed;
+	private final int mask;
+	private long tick = 0;
+	private int size = 0;
+	private long evictions = 0;
+
+	/**
+	 * @param capacity
+	 *            Number of slots; rounded up to a power of two (at least the probe
+	 *            window size).
+	 */
+	public LongHashSet(int capacity) {
+		int slots = Integer.highestOneBit(Math.max(capacity, PROBE_WINDOW) - 1) << 1;
+		keys = new long[slots];
+		lastUsed = new long[slots];
+		mask = slots - 1;
+	}
+
+	/**
+	 * Adds the key. Returns true if it was not in the set before (in which case
+	 * another key may have been evicted), false if it already was.
+	 */
+	public boolean add(long key) {
+		if (key == EMPTY) {
+			key = EMPTY_REPLACEMENT;
+		}
+		tick++;
+
+		int start = (int) mix(key) & mask;
+		int free = -1;
+		int oldest = start;
+		for (int i = 0; i < PROBE_WINDOW; i++) {
+			int slot = (start + i) & mask;
+			long slotKey = keys[slot];
+			if (slotKey == key) {
+				lastUsed[slot] = tick;
+				return false;
+			}
+			if (slotKey == EMPTY) {
+				if (free < 0) {
+					free = slot;
+				}
+			} else if (lastUsed[slot] < lastUsed[oldest]) {
+				oldest = slot;
+			}
+		}
+
+		if (free < 0) {
+			// window is full, evict the least recently used key
+			free = oldest;
+			evictions++;
+		} else {
+			size++;
+		}
+		keys[free] = key;
+		lastUsed[free] = tick;
+		return true;
+	}
+
+	/**
+	 * Removes all keys.
+	 */
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Number of keys evicted so far to make room for new ones.
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Spreads the bits of a key (finalizer of MurmurHash3).
+	 */
+	public static long mix(long key) {
+		key ^= key >>> 33;
+		key *= 0xFF51AFD7ED558CCDL;
+		key ^= key >>> 33;
+		key *= 0xC4CEB9FE1A85EC53L;
+		key ^= key >>> 33;
+		return key;
+	}
+
+}
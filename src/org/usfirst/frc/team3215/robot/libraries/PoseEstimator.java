@@ -0,0 +1,221 @@
+package org.usfirst.frc.team3215.robot.libraries;
+
+/**
+ * Dead reckoning: where the robot is on the field, from the IMU and the most
+ * recent mecanum drive command (see MotorHelper.drive). Updated by the
+ * ImuThread with every IMU sample.
+ * <p>
+ * The robot's speeds come from two sources, merged with a complementary
+ * filter: the drive command, through the mecanum kinematics, scaled by the top
+ * speeds and with a first order lag (as in tools.MecanumModel), which is right
+ * on average but misses slip, bumps and battery sag; and the integrated linear
+ * acceleration of the IMU, which follows quick changes but drifts. Below
+ * FUSION_TIME_CONSTANT the acceleration counts, above it the command. The
+ * heading turns the speeds into field coordinates. There is no wheel odometry,
+ * so the estimate still drifts; it's good for a few meters of autonomous.
+ * <p>
+ * While the command is zero and the gyro says the robot isn't turning, the
+ * robot is taken to stand still (a zero-velocity update): the speeds are the
+ * commanded ones, and once these have died down, what the accelerometer reads
+ * is its bias, which is learned and taken off from then on. Without that, a
+ * bias of b would hold the speed off by b * FUSION_TIME_CONSTANT.
+ * <p>
+ * Field coordinates: x points away from the driver station (the robot faces
+ * that way at reset), y to the left, in meters; the heading is counterclockwise
+ * in degrees, as in MotorHelper.drive(). The IMU is expected to be mounted
+ * with its x axis forward and y axis to the left.
+ * <p>
+ * Results are published without locks, like the ImuThread does: a consistent
+ * pose (from the same sample) with readSnapshot().
+ */
+public class PoseEstimator {
+
+	// only held while computing/publishing; readers don't take it at all
+	private final Object STATE_MUTEX = new Object();
+
+	private final static double DEGREES_TO_RAD = Math.PI / 180.;
+
+	// the robot at full output (estimates; measure on the robot)
+	private final static double FORWARD_SPEED = 3.0; // [m/s]
+	private final static double STRAFE_SPEED = 2.4; // [m/s]
+	private final static double TIME_CONSTANT = 0.15; // [s] to reach 63% of a new speed
+
+	private final static double FUSION_TIME_CONSTANT = 0.5; // [s], see above
+
+	// zero-velocity update, see above
+	private final static double STILL_RATE = 3.; // [degrees/s], gyro noise
+	private final static double STILL_SPEED = 0.01; // [m/s], commanded, to learn the bias
+	private final static double BIAS_TIME_CONSTANT = 2.; // [s] to reach 63% of a new bias
+
+	// the most recent drive command (see MecanumOutput.drivePolar); a command torn
+	// by an update in between only counts for one sample
+	private volatile double magnitude = 0;
+	private volatile double angle = 0;
+	private volatile double rotation = 0;
+
+	// internal state, guarded by STATE_MUTEX
+	private double x = 0;
+	private double y = 0;
+	private double heading = 0;
+	private double timestamp = Double.NaN; // of the most recent update [s]
+	private double forwardSpeed = 0; // [m/s], robot frame, fused
+	private double leftSpeed = 0; // [m/s], robot frame, fused
+	private double commandedForwardSpeed = 0; // [m/s], robot frame, from the command alone
+	private double commandedLeftSpeed = 0; // [m/s], robot frame, from the command alone
+	private double forwardBias = 0; // [m/s^2], of the accelerometer; kept over reset()
+	private double leftBias = 0; // [m/s^2], of the accelerometer; kept over reset()
+
+	// published state (sequence lock): the sequence is odd while values are being
+	// written, and readers retry until they saw the same even sequence before and
+	// after reading
+	private volatile long publishedSequence = 0;
+	private volatile double publishedX = 0;
+	private volatile double publishedY = 0;
+	private volatile double publishedHeading = 0;
+	private volatile double publishedTimestamp = 0;
+
+	/**
+	 * Puts the robot at the origin, standing still, at the heading of the next
+	 * update(). Any thread.
+	 */
+	public void reset() {
+		synchronized (STATE_MUTEX) {
+			x = 0;
+			y = 0;
+			forwardSpeed = 0;
+			leftSpeed = 0;
+			commandedForwardSpeed = 0;
+			commandedLeftSpeed = 0;
+			timestamp = Double.NaN;
+			publish();
+		}
+	}
+
+	/**
+	 * Takes note of a drive command as given to MecanumOutput.drivePolar; it
+	 * counts from the next update() on. Any thread.
+	 */
+	public void setCommand(double magnitude, double angle, double rotation) {
+		this.magnitude = magnitude;
+		this.angle = angle;
+		this.rotation = rotation;
+	}
+
+	/**
+	 * Moves the estimate on to the given IMU sample. IMU thread only.
+	 *
+	 * @param timestamp
+	 *            FPGA time of the sample [s].
+	 * @param heading
+	 *            [degrees], counterclockwise.
+	 * @param rate
+	 *            Rate of turn [degrees/s], counterclockwise.
+	 * @param forwardAcceleration
+	 *            Linear acceleration along the robot's x axis [m/s^2], or NaN if
+	 *            unknown.
+	 * @param leftAcceleration
+	 *            Linear acceleration along the robot's y axis [m/s^2], or NaN if
+	 *            unknown.
+	 */
+	public void update(double timestamp, double heading, double rate, double forwardAcceleration,
+			double leftAcceleration) {
+
+		// wheel outputs as in MecanumDrive.drivePolar, and back to robot speeds
+		double right = Math.max(-1., Math.min(1., magnitude * Math.sin(angle * DEGREES_TO_RAD)));
+		double forward = Math.max(-1., Math.min(1., magnitude * Math.cos(angle * DEGREES_TO_RAD)));
+		double turn = Math.max(-1., Math.min(1., rotation));
+		double max = Math.max(1., Math.abs(right) + Math.abs(forward) + Math.abs(turn));
+		boolean still = (magnitude == 0 && rotation == 0 && Math.abs(rate) < STILL_RATE);
+
+		synchronized (STATE_MUTEX) {
+			double dt = timestamp - this.timestamp;
+			double previousHeading = this.heading;
+			this.timestamp = timestamp;
+			this.heading = heading;
+
+			if (dt > 0) { // not the first update after reset
+
+				double lag = 1. - Math.exp(-dt / TIME_CONSTANT);
+				commandedForwardSpeed += (forward / max * FORWARD_SPEED - commandedForwardSpeed) * lag;
+				commandedLeftSpeed += (-right / max * STRAFE_SPEED - commandedLeftSpeed) * lag;
+
+				if (Double.isNaN(forwardAcceleration) || Double.isNaN(leftAcceleration)) {
+					forwardSpeed = commandedForwardSpeed;
+					leftSpeed = commandedLeftSpeed;
+				} else if (still) {
+					// zero-velocity update
+					forwardSpeed = commandedForwardSpeed;
+					leftSpeed = commandedLeftSpeed;
+					if (Math.abs(commandedForwardSpeed) < STILL_SPEED && Math.abs(commandedLeftSpeed) < STILL_SPEED) {
+						double learn = 1. - Math.exp(-dt / BIAS_TIME_CONSTANT);
+						forwardBias += (forwardAcceleration - forwardBias) * learn;
+						leftBias += (leftAcceleration - leftBias) * learn;
+					}
+				} else {
+					// the acceleration in the turning robot frame includes the centripetal part
+					double omega = rate * DEGREES_TO_RAD;
+					double measuredForwardSpeed = forwardSpeed
+							+ (forwardAcceleration - forwardBias + omega * leftSpeed) * dt;
+					double measuredLeftSpeed = leftSpeed + (leftAcceleration - leftBias - omega * forwardSpeed) * dt;
+					double weight = FUSION_TIME_CONSTANT / (FUSION_TIME_CONSTANT + dt);
+					forwardSpeed = weight * measuredForwardSpeed + (1. - weight) * commandedForwardSpeed;
+					leftSpeed = weight * measuredLeftSpeed + (1. - weight) * commandedLeftSpeed;
+				}
+
+				// integrate on the field at the middle of the step
+				double midHeading = (previousHeading + AnglesHelper.getAngleDifference(previousHeading, heading) / 2.)
+						* DEGREES_TO_RAD;
+				double cos = Math.cos(midHeading);
+				double sin = Math.sin(midHeading);
+				x += (forwardSpeed * cos - leftSpeed * sin) * dt;
+				y += (forwardSpeed * sin + leftSpeed * cos) * dt;
+			}
+
+			publish();
+		}
+	}
+
+	/**
+	 * Copies the internal state to the published state. Must hold STATE_MUTEX.
+	 */
+	private void publish() {
+		long sequence = publishedSequence;
+		publishedSequence = sequence + 1; // odd: writing
+		publishedX = x;
+		publishedY = y;
+		publishedHeading = heading;
+		publishedTimestamp = Double.isNaN(timestamp) ? 0 : timestamp;
+		publishedSequence = sequence + 2; // even: done
+	}
+
+	/**
+	 * Fills the given snapshot with a consistent pose (all from the same sample).
+	 * Never blocks and does not allocate.
+	 */
+	public void readSnapshot(PoseSnapshot snapshot) {
+		long sequence;
+		do {
+			sequence = publishedSequence;
+			snapshot.x = publishedX;
+			snapshot.y = publishedY;
+			snapshot.heading = publishedHeading;
+			snapshot.timestamp = publishedTimestamp;
+		} while (((sequence & 1) != 0) || (sequence != publishedSequence));
+		snapshot.sequence = sequence >> 1;
+	}
+
+	/**
+	 * Most recent x [m]; for x and y together, use readSnapshot().
+	 */
+	public double getX() {
+		return publishedX;
+	}
+
+	/**
+	 * Most recent y [m]; for x and y together, use readSnapshot().
+	 */
+	public double getY() {
+		return publishedY;
+	}
+
+}
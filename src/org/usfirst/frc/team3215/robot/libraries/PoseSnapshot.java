@@ -0,0 +1,20 @@
+package org.usfirst.frc.team3215.robot.libraries;
+
+/**
+ * One consistent pose published by the PoseEstimator. Create one instance per
+ * consumer and fill it once per frame with PoseEstimator.readSnapshot().
+ */
+public class PoseSnapshot {
+
+	public double x; // [m], away from the driver station
+	public double y; // [m], to the left
+	public double heading; // [degrees], counterclockwise
+	public double timestamp; // FPGA time of the IMU sample [s]
+	public long sequence; // increases by one with every published pose
+
+	@Override
+	public String toString() {
+		return "PoseSnapshot [sequence=" + sequence + ", timestamp=" + timestamp + ", x=" + x + ", y=" + y
+				+ ", heading=" + heading + "]";
+	}
+}
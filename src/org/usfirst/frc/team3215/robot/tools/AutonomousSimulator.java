@@ -0,0 +1,374 @@
+package org.usfirst.frc.team3215.robot.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Random;
+
+import org.usfirst.frc.team3215.robot.RobotCore;
+import org.usfirst.frc.team3215.robot.config.AutonomousModes;
+import org.usfirst.frc.team3215.robot.hal.SimulatedBno055;
+import org.usfirst.frc.team3215.robot.hal.SimulatedClock;
+import org.usfirst.frc.team3215.robot.hal.SimulatedPlatform;
+import org.usfirst.frc.team3215.robot.worker.AutonomousPlan;
+import org.usfirst.frc.team3215.robot.worker.AutonomousPlans;
+import org.usfirst.frc.team3215.robot.worker.AutonomousWorker;
+
+/**
+ * Offline command line tool (runs on a laptop, not on the robot) to check the
+ * autonomous plans without a field. Runs the robot code (RobotCore) on a
+ * SimulatedPlatform with a simulated clock, the mecanum model driving the
+ * simulated IMU, through a full autonomous for every autonomous mode and every
+ * game data combination. Deterministic, and much faster than real time.
+ * <p>
+ * Prints the final pose and the timing of each action of every run. With a
+ * directory, also writes the trajectory of every run there as CSV (time, x, y,
+ * heading, action number). With -v, prints the robot log as well.
+ * <p>
+ * Example: java -cp FRCUserProgram.jar
+ * org.usfirst.frc.team3215.robot.tools.AutonomousSimulator ~/trajectories/
+ */
+public class AutonomousSimulator {
+
+	public final static double PERIOD = 0.020; // driver station packets come every 20 milliseconds
+	public final static double MIN_PERIOD = 0.005; // with loop jitter
+	public final static double DISABLED_TIME = 1.; // [s] standing on the field before the match starts
+	public final static double AUTONOMOUS_TIME = 15.; // [s]
+
+	// the robot, roughly
+	public final static double MAX_SPEED = 3.0; // [m/s]
+	public final static double MAX_STRAFE_SPEED = 2.4; // [m/s]
+	public final static double MAX_TURN_RATE = 300.; // [degrees/s]
+	public final static double TIME_CONSTANT = 0.15; // [s]
+
+	public static void main(String[] args) throws IOException {
+		PrintStream log = null;
+		File trajectoryDirectory = null;
+		for (String arg : args) {
+			if ("-v".equals(arg)) {
+				log = System.out;
+			} else {
+				trajectoryDirectory = new File(arg);
+				trajectoryDirectory.mkdirs();
+			}
+		}
+
+		long startTime = System.nanoTime();
+		int runs = 0;
+		for (AutonomousModes mode : AutonomousModes.values()) {
+			for (String gameData : getGameDataCombinations()) {
+				Run run = simulate(mode, gameData, newModel(), log);
+				run.print(System.out);
+				if (trajectoryDirectory != null) {
+					run.writeTrajectory(new File(trajectoryDirectory, mode + "-" + gameData + ".csv"));
+				}
+				runs++;
+			}
+		}
+		long elapsedTime = (System.nanoTime() - startTime) / 1000000L;
+
+		System.out.println();
+		System.out.println("simulated " + runs + " autonomous runs (" + (runs * AUTONOMOUS_TIME) + " seconds) in "
+				+ elapsedTime + " milliseconds");
+	}
+
+	/**
+	 * All eight game data messages ("LLL" to "RRR").
+	 */
+	public static String[] getGameDataCombinations() {
+		String[] combinations = new String[AutonomousPlans.GAME_DATA_COMBINATIONS];
+		for (int i = 0; i < combinations.length; i++) {
+			combinations[i] = AutonomousPlans.getGameData(i);
+		}
+		return combinations;
+	}
+
+	/**
+	 * The mecanum model with the default robot parameters.
+	 */
+	public static MecanumModel newModel() {
+		return new MecanumModel(MAX_SPEED, MAX_STRAFE_SPEED, MAX_TURN_RATE, TIME_CONSTANT);
+	}
+
+	/**
+	 * Simulates robotInit, a second of disabled, and a full autonomous in the given
+	 * mode, starting at the current pose of the given model.
+	 *
+	 * @param log
+	 *            Where to write the robot log, or null.
+	 */
+	public static Run simulate(AutonomousModes mode, String gameData, MecanumModel model, PrintStream log) {
+		return simulate(mode, gameData, model, null, log);
+	}
+
+	/**
+	 * Like simulate(mode, gameData, model, log), with sensor noise and loop
+	 * jitter.
+	 *
+	 * @param disturbances
+	 *            Noise and jitter, or null for none.
+	 */
+	@SuppressWarnings("unchecked")
+	public static Run simulate(AutonomousModes mode, String gameData, MecanumModel model, Disturbances disturbances,
+			PrintStream log) {
+		SimulatedClock clock = new SimulatedClock();
+		SimulatedPlatform platform = new SimulatedPlatform(clock);
+		platform.setLogOutput(log);
+		platform.setGameSpecificMessage(gameData);
+		RobotCore core = new RobotCore(platform);
+		Simulation simulation = new Simulation(clock, platform, core, model, disturbances);
+
+		core.robotInit();
+		SimulatedPlatform.SimulatedChooser<AutonomousModes> chooser = (SimulatedPlatform.SimulatedChooser<AutonomousModes>) platform
+				.getDashboard().get("Autonomous");
+		chooser.select(mode);
+
+		core.disabledInit();
+		while (clock.getTimestamp() < DISABLED_TIME) {
+			simulation.step();
+			core.disabledPeriodic();
+			core.robotPeriodic();
+		}
+
+		Run run = new Run(mode, gameData, (int) Math.ceil(AUTONOMOUS_TIME / MIN_PERIOD));
+		double startTime = clock.getTimestamp();
+		core.autonomousInit();
+		while (clock.getTimestamp() - startTime < AUTONOMOUS_TIME - PERIOD / 2.) {
+			simulation.step();
+			core.autonomousPeriodic();
+			core.robotPeriodic();
+			run.record(clock.getTimestamp() - startTime, model, core.autonomous());
+		}
+		run.finish(core.autonomous());
+		return run;
+	}
+
+	/**
+	 * What goes wrong in a real match, next to the robot not driving exactly like
+	 * the model (see MonteCarloRunner): noise on the IMU readings, a constant
+	 * accelerometer bias, and loop periods that vary.
+	 */
+	public static class Disturbances {
+		private final Random random;
+		private final double headingNoise;
+		private final double gyroNoise;
+		private final double accelerationNoise;
+		private final double forwardAccelerationBias;
+		private final double leftAccelerationBias;
+		private final double periodJitter;
+
+		/**
+		 * @param headingNoise
+		 *            Standard deviation of the IMU heading [degrees].
+		 * @param gyroNoise
+		 *            Standard deviation of the IMU rate of turn [degrees/s].
+		 * @param accelerationNoise
+		 *            Standard deviation of the IMU linear acceleration [m/s^2].
+		 * @param accelerationBias
+		 *            Standard deviation of the IMU linear acceleration bias
+		 *            [m/s^2]; drawn once, it stays the same for the whole run.
+		 * @param periodJitter
+		 *            Standard deviation of the loop period [s] (never shorter than
+		 *            MIN_PERIOD).
+		 */
+		public Disturbances(Random random, double headingNoise, double gyroNoise, double accelerationNoise,
+				double accelerationBias, double periodJitter) {
+			this.random = random;
+			this.headingNoise = headingNoise;
+			this.gyroNoise = gyroNoise;
+			this.accelerationNoise = accelerationNoise;
+			forwardAccelerationBias = random.nextGaussian() * accelerationBias;
+			leftAccelerationBias = random.nextGaussian() * accelerationBias;
+			this.periodJitter = periodJitter;
+		}
+	}
+
+	/**
+	 * Moves the simulated world along by one period: the robot drives at the
+	 * motor outputs of the previous period, and the IMU sees the result.
+	 */
+	private static class Simulation {
+		private final SimulatedClock clock;
+		private final SimulatedPlatform platform;
+		private final RobotCore core;
+		private final MecanumModel model;
+		private final Disturbances disturbances;
+		private final double startHeading;
+
+		Simulation(SimulatedClock clock, SimulatedPlatform platform, RobotCore core, MecanumModel model,
+				Disturbances disturbances) {
+			this.clock = clock;
+			this.platform = platform;
+			this.core = core;
+			this.model = model;
+			this.disturbances = disturbances;
+			startHeading = model.getHeading(); // the IMU reads zero at power up
+		}
+
+		void step() {
+			double period = PERIOD;
+			double headingError = 0;
+			double gyroError = 0;
+			double forwardAccelerationError = 0;
+			double leftAccelerationError = 0;
+			if (disturbances != null) {
+				period = Math.max(MIN_PERIOD, PERIOD + disturbances.random.nextGaussian() * disturbances.periodJitter);
+				headingError = disturbances.random.nextGaussian() * disturbances.headingNoise;
+				gyroError = disturbances.random.nextGaussian() * disturbances.gyroNoise;
+				forwardAccelerationError = disturbances.forwardAccelerationBias
+						+ disturbances.random.nextGaussian() * disturbances.accelerationNoise;
+				leftAccelerationError = disturbances.leftAccelerationBias
+						+ disturbances.random.nextGaussian() * disturbances.accelerationNoise;
+			}
+			clock.advance(period);
+
+			// the right motors are inverted (see SimulatedPlatform.SimulatedMecanum)
+			model.step(period, platform.getMotor(0).get(), platform.getMotor(1).get(), -platform.getMotor(2).get(),
+					-platform.getMotor(3).get());
+
+			// the IMU heading is clockwise
+			SimulatedBno055 imu = platform.getImu();
+			imu.setHeading(-(model.getHeading() - startHeading) + headingError);
+			imu.setGyroZ(model.getTurnRate() + gyroError);
+			imu.setLinearAcceleration(model.getForwardAcceleration() + forwardAccelerationError,
+					model.getLeftAcceleration() + leftAccelerationError, 0);
+
+			core.hardware().pollSensors();
+		}
+	}
+
+	/**
+	 * Trajectory and action timing of one simulated autonomous.
+	 */
+	public static class Run {
+		public final AutonomousModes mode;
+		public final String gameData;
+
+		private final double[] times;
+		private final double[] xs;
+		private final double[] ys;
+		private final double[] headings;
+		private final int[] actionNumbers;
+		private int count = 0;
+
+		// by action number (see finish())
+		private int[] actionTypes = new int[0];
+		private double[] actionStartTimes = new double[0]; // [s], or -1 if never started
+		private double[] actionEndTimes = new double[0]; // [s], or -1 if never ended
+		private double finishTime = -1; // when the plan was done [s], or -1
+
+		Run(AutonomousModes mode, String gameData, int steps) {
+			this.mode = mode;
+			this.gameData = gameData;
+			times = new double[steps];
+			xs = new double[steps];
+			ys = new double[steps];
+			headings = new double[steps];
+			actionNumbers = new int[steps];
+		}
+
+		void record(double time, MecanumModel model, AutonomousWorker autonomous) {
+			if (count == times.length) {
+				return;
+			}
+			int actionNumber = autonomous.getCurrentActionNumber();
+			times[count] = time;
+			xs[count] = model.getX();
+			ys[count] = model.getY();
+			headings[count] = model.getHeading();
+			actionNumbers[count] = actionNumber;
+			count++;
+
+			if (finishTime < 0 && actionNumber >= autonomous.getPlan().size()) {
+				finishTime = time;
+			}
+		}
+
+		/**
+		 * Copies the action timing from the worker, at the end of the run.
+		 */
+		void finish(AutonomousWorker autonomous) {
+			AutonomousPlan plan = autonomous.getPlan();
+			actionTypes = new int[plan.size()];
+			actionStartTimes = new double[plan.size()];
+			actionEndTimes = new double[plan.size()];
+			for (int i = 0; i < plan.size(); i++) {
+				actionTypes[i] = plan.getType(i);
+				long startTime = autonomous.getActionStartTime(i);
+				long endTime = autonomous.getActionEndTime(i);
+				actionStartTimes[i] = (startTime < 0) ? -1 : startTime / 1000.;
+				actionEndTimes[i] = (endTime < 0) ? -1 : endTime / 1000.;
+			}
+		}
+
+		public double getFinalX() {
+			return xs[count - 1];
+		}
+
+		public double getFinalY() {
+			return ys[count - 1];
+		}
+
+		public double getFinalHeading() {
+			return headings[count - 1];
+		}
+
+		/**
+		 * Number of actions in the plan.
+		 */
+		public int getActionCount() {
+			return actionTypes.length;
+		}
+
+		/**
+		 * Seconds into autonomous when the given action started, or -1 if it never
+		 * did.
+		 */
+		public double getActionStartTime(int actionNumber) {
+			return actionStartTimes[actionNumber];
+		}
+
+		/**
+		 * Seconds into autonomous when the given action ended, or -1 if it never did.
+		 */
+		public double getActionEndTime(int actionNumber) {
+			return actionEndTimes[actionNumber];
+		}
+
+		/**
+		 * Seconds into autonomous when the plan was done, or -1 if it wasn't.
+		 */
+		public double getFinishTime() {
+			return finishTime;
+		}
+
+		public void print(PrintStream out) {
+			out.printf("%-22s %s  final x %6.2f m  y %6.2f m  heading %7.1f degrees%n", mode, gameData,
+					getFinalX(), getFinalY(), getFinalHeading());
+			for (int i = 0; i < actionTypes.length; i++) {
+				if (actionStartTimes[i] < 0) {
+					out.printf("    #%-2d type %2d  never started%n", i, actionTypes[i]);
+				} else if (actionEndTimes[i] < 0) {
+					out.printf("    #%-2d type %2d  %6.2f s, still running%n", i, actionTypes[i],
+							actionStartTimes[i]);
+				} else {
+					out.printf("    #%-2d type %2d  %6.2f s to %6.2f s (%5.2f s)%n", i, actionTypes[i],
+							actionStartTimes[i], actionEndTimes[i], actionEndTimes[i] - actionStartTimes[i]);
+				}
+			}
+			if (finishTime >= 0) {
+				out.printf("    done at %.2f s%n", finishTime);
+			}
+		}
+
+		public void writeTrajectory(File file) throws IOException {
+			try (PrintStream out = new PrintStream(file, "UTF-8")) {
+				out.println("time,x,y,heading,action");
+				for (int i = 0; i < count; i++) {
+					out.printf("%.3f,%.4f,%.4f,%.2f,%d%n", times[i], xs[i], ys[i], headings[i], actionNumbers[i]);
+				}
+			}
+		}
+	}
+
+}
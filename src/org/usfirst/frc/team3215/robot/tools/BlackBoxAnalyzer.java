@@ -0,0 +1,100 @@
+package org.usfirst.frc.team3215.robot.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Offline command line tool (runs on a laptop, not on the robot) to analyze
+ * black box files. Pass any number of files and/or directories; directories
+ * are searched for black box files recursively. Files are analyzed in parallel
+ * on all cores.
+ * <p>
+ * Example: java -cp FRCUserProgram.jar
+ * org.usfirst.frc.team3215.robot.tools.BlackBoxAnalyzer ~/matches/
+ */
+public class BlackBoxAnalyzer {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0) {
+			System.err.println("usage: BlackBoxAnalyzer <file or directory> ...");
+			System.exit(1);
+		}
+
+		List<File> files = new ArrayList<File>();
+		for (String arg : args) {
+			collectFiles(new File(arg), files);
+		}
+		Collections.sort(files);
+
+		long startTime = System.currentTimeMillis();
+		BlackBoxStats stats = ForkJoinPool.commonPool().invoke(new AnalyzeTask(files, 0, files.size()));
+		long elapsedTime = System.currentTimeMillis() - startTime;
+
+		stats.print(System.out);
+		System.out.println();
+		System.out.println("analyzed " + files.size() + " files in " + elapsedTime + " milliseconds");
+	}
+
+	private static void collectFiles(File file, List<File> files) {
+		if (file.isDirectory()) {
+			File[] children = file.listFiles();
+			if (children != null) {
+				for (File child : children) {
+					if (child.isDirectory() || child.getName().endsWith(".bin")) {
+						collectFiles(child, files);
+					}
+				}
+			}
+		} else {
+			files.add(file);
+		}
+	}
+
+	/**
+	 * Analyzes a range of files: single files directly, larger ranges by
+	 * splitting them in two and merging the results.
+	 */
+	private static class AnalyzeTask extends RecursiveTask<BlackBoxStats> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<File> files;
+		private final int from;
+		private final int to;
+
+		AnalyzeTask(List<File> files, int from, int to) {
+			this.files = files;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected BlackBoxStats compute() {
+			if (to - from <= 1) {
+				BlackBoxStats stats = new BlackBoxStats();
+				if (to > from) {
+					File file = files.get(from);
+					try (BlackBoxReader reader = new BlackBoxReader(file)) {
+						stats.add(reader);
+					} catch (IOException e) {
+						System.err.println("Warning: skipping " + file + ": " + e.getMessage());
+					}
+				}
+				return stats;
+			}
+
+			int middle = (from + to) >>> 1;
+			AnalyzeTask left = new AnalyzeTask(files, from, middle);
+			AnalyzeTask right = new AnalyzeTask(files, middle, to);
+			left.fork();
+			BlackBoxStats rightStats = right.compute();
+			return left.join().merge(rightStats);
+		}
+	}
+
+}
@@ -0,0 +1,158 @@
+package org.usfirst.frc.team3215.robot.tools;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.usfirst.frc.team3215.robot.libraries.BlackBoxRecorder;
+
+/**
+ * Reads a black box file (see BlackBoxRecorder) frame by frame, in the order
+ * the frames were recorded. Only a small window of the file is held in memory
+ * at any time, so files of any size can be streamed.
+ * <p>
+ * Usage: while (reader.next()) { reader.getHeading(); ... }
+ */
+public class BlackBoxReader implements Closeable {
+
+	private final static int FRAMES_PER_READ = 1024;
+
+	private final FileChannel channel;
+	private final ByteBuffer window;
+	private final int frameCapacity;
+	private final long frameCount; // number of valid frames in the file
+	private final long firstFrame; // ring index of the oldest frame
+
+	private long framesRead = 0;
+	private int base = -BlackBoxRecorder.FRAME_SIZE; // offset of the current frame in the window
+
+	public BlackBoxReader(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+		ByteBuffer header = ByteBuffer.allocate(BlackBoxRecorder.HEADER_SIZE);
+		readFully(header, 0);
+		if (header.getInt(BlackBoxRecorder.HEADER_MAGIC) != BlackBoxRecorder.MAGIC) {
+			channel.close();
+			throw new IOException(file + " is not a black box file");
+		}
+		if (header.getInt(BlackBoxRecorder.HEADER_VERSION) != BlackBoxRecorder.VERSION
+				|| header.getInt(BlackBoxRecorder.HEADER_FRAME_SIZE) != BlackBoxRecorder.FRAME_SIZE) {
+			channel.close();
+			throw new IOException(file + " has an unsupported version");
+		}
+
+		frameCapacity = header.getInt(BlackBoxRecorder.HEADER_FRAME_CAPACITY);
+		long framesWritten = header.getLong(BlackBoxRecorder.HEADER_FRAMES_WRITTEN);
+		frameCount = Math.min(framesWritten, frameCapacity);
+		firstFrame = (framesWritten > frameCapacity) ? framesWritten % frameCapacity : 0;
+
+		window = ByteBuffer.allocate(FRAMES_PER_READ * BlackBoxRecorder.FRAME_SIZE);
+		window.limit(0);
+	}
+
+	/**
+	 * Number of frames in this file.
+	 */
+	public long getFrameCount() {
+		return frameCount;
+	}
+
+	/**
+	 * Advance to the next frame. Returns false once all frames have been read.
+	 */
+	public boolean next() throws IOException {
+		if (framesRead >= frameCount) {
+			return false;
+		}
+
+		base += BlackBoxRecorder.FRAME_SIZE;
+		if (base >= window.limit()) {
+			// load the next window, without reading past the end of the ring
+			long ringIndex = (firstFrame + framesRead) % frameCapacity;
+			long frames = Math.min(FRAMES_PER_READ, Math.min(frameCount - framesRead, frameCapacity - ringIndex));
+			window.clear();
+			window.limit((int) frames * BlackBoxRecorder.FRAME_SIZE);
+			readFully(window, BlackBoxRecorder.HEADER_SIZE + ringIndex * BlackBoxRecorder.FRAME_SIZE);
+			base = 0;
+		}
+
+		framesRead++;
+		return true;
+	}
+
+	public long getTimeNanos() {
+		return window.getLong(base + BlackBoxRecorder.FRAME_TIME_NANOS);
+	}
+
+	public int getLoopMicros() {
+		return window.getInt(base + BlackBoxRecorder.FRAME_LOOP_MICROS);
+	}
+
+	public int getMode() {
+		return window.getInt(base + BlackBoxRecorder.FRAME_MODE);
+	}
+
+	public int getActionNumber() {
+		return window.getInt(base + BlackBoxRecorder.FRAME_ACTION_NUMBER);
+	}
+
+	public int getActionType() {
+		return window.getInt(base + BlackBoxRecorder.FRAME_ACTION_TYPE);
+	}
+
+	public float getHeading() {
+		return window.getFloat(base + BlackBoxRecorder.FRAME_HEADING);
+	}
+
+	public float getHeadingMvgAvg50() {
+		return window.getFloat(base + BlackBoxRecorder.FRAME_HEADING_MVG_AVG_50);
+	}
+
+	public float getHeadingMvgAvg90() {
+		return window.getFloat(base + BlackBoxRecorder.FRAME_HEADING_MVG_AVG_90);
+	}
+
+	public float getHeadingBestTwoOfThree() {
+		return window.getFloat(base + BlackBoxRecorder.FRAME_HEADING_BEST_TWO_OF_THREE);
+	}
+
+	public float getTargetDriveDirection() {
+		return window.getFloat(base + BlackBoxRecorder.FRAME_TARGET_DRIVE_DIRECTION);
+	}
+
+	public float getDriveSpeed() {
+		return window.getFloat(base + BlackBoxRecorder.FRAME_DRIVE_SPEED);
+	}
+
+	public float getTargetOrientationAngle() {
+		return window.getFloat(base + BlackBoxRecorder.FRAME_TARGET_ORIENTATION_ANGLE);
+	}
+
+	public float getTurnSpeed() {
+		return window.getFloat(base + BlackBoxRecorder.FRAME_TURN_SPEED);
+	}
+
+	public float getMotorOutput(int channel) {
+		return window.getFloat(base + BlackBoxRecorder.FRAME_MOTOR_OUTPUTS + 4 * channel);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new IOException("unexpected end of black box file");
+			}
+			position += read;
+		}
+		buffer.flip();
+	}
+
+}
@@ -0,0 +1,210 @@
+package org.usfirst.frc.team3215.robot.tools;
+
+import java.io.IOException;
+import java.io.PrintStream;
+
+import org.usfirst.frc.team3215.robot.libraries.AnglesHelper;
+import org.usfirst.frc.team3215.robot.libraries.BlackBoxRecorder;
+
+/**
+ * Statistics over one or many black box files. All distributions are kept as
+ * fixed-size histograms, so statistics of different files can be merged
+ * cheaply (see merge()).
+ */
+public class BlackBoxStats {
+
+	// loop period histogram: 0.1 ms bins up to 250 ms, everything above goes into
+	// the last bin
+	private final static int LOOP_BIN_MICROS = 100;
+	private final static int LOOP_BINS = 2500;
+
+	// heading error histogram: 0.5 degree bins over [-180, 180[
+	private final static double HEADING_BIN_DEGREES = 0.5;
+	private final static int HEADING_BINS = 720;
+
+	// autonomous actions, by their number in the plan; the types seen for each
+	// number are kept as a bit mask
+	private final static int MAX_ACTIONS = 256;
+	private final static int MAX_ACTION_TYPES = 32;
+
+	private long files = 0;
+	private long frames = 0;
+	private final long[] loopHistogram = new long[LOOP_BINS];
+	private final long[] headingErrorHistogram = new long[HEADING_BINS];
+	private final long[] actionMicros = new long[MAX_ACTIONS];
+	private final long[] actionFrames = new long[MAX_ACTIONS];
+	private final int[] actionTypes = new int[MAX_ACTIONS];
+
+	/**
+	 * Stream all frames of one file into these statistics.
+	 */
+	public void add(BlackBoxReader reader) throws IOException {
+		files++;
+		boolean first = true;
+
+		while (reader.next()) {
+			frames++;
+			int loopMicros = reader.getLoopMicros();
+
+			// the first frame's loop time is the time since recorder start
+			if (!first) {
+				int bin = Math.min(Math.max(loopMicros / LOOP_BIN_MICROS, 0), LOOP_BINS - 1);
+				loopHistogram[bin]++;
+			}
+			first = false;
+
+			if (reader.getMode() == BlackBoxRecorder.MODE_DISABLED) {
+				continue;
+			}
+
+			// how far off was the heading MotorHelper.drive() steers with from its target?
+			if (reader.getTurnSpeed() > 0) {
+				double error = AnglesHelper.getAngleDifference(reader.getHeadingBestTwoOfThree(),
+						reader.getTargetOrientationAngle());
+				int bin = (int) Math.floor((error + 180.) / HEADING_BIN_DEGREES);
+				headingErrorHistogram[Math.min(Math.max(bin, 0), HEADING_BINS - 1)]++;
+			}
+
+			int actionNumber = reader.getActionNumber();
+			if (reader.getMode() == BlackBoxRecorder.MODE_AUTONOMOUS && actionNumber >= 0
+					&& actionNumber < MAX_ACTIONS) {
+				actionMicros[actionNumber] += loopMicros;
+				actionFrames[actionNumber]++;
+				int actionType = reader.getActionType();
+				if (actionType >= 0 && actionType < MAX_ACTION_TYPES) {
+					actionTypes[actionNumber] |= 1 << actionType;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the statistics of another instance to this one.
+	 */
+	public BlackBoxStats merge(BlackBoxStats other) {
+		files += other.files;
+		frames += other.frames;
+		for (int i = 0; i < LOOP_BINS; i++) {
+			loopHistogram[i] += other.loopHistogram[i];
+		}
+		for (int i = 0; i < HEADING_BINS; i++) {
+			headingErrorHistogram[i] += other.headingErrorHistogram[i];
+		}
+		for (int i = 0; i < MAX_ACTIONS; i++) {
+			actionMicros[i] += other.actionMicros[i];
+			actionFrames[i] += other.actionFrames[i];
+			actionTypes[i] |= other.actionTypes[i];
+		}
+		return this;
+	}
+
+	/**
+	 * Writes a human readable report.
+	 */
+	public void print(PrintStream out) {
+		out.println("files: " + files + ", frames: " + frames);
+
+		out.println();
+		out.println("loop period [ms]:");
+		for (double p : new double[] { 0.5, 0.9, 0.99, 0.999, 1.0 }) {
+			printPercentile(out, p, getPercentileBin(loopHistogram, p), LOOP_BINS, LOOP_BIN_MICROS / 1000.);
+		}
+
+		out.println();
+		out.println("heading error while turning [degrees], |error| percentiles:");
+		long[] absHistogram = new long[HEADING_BINS / 2];
+		for (int i = 0; i < HEADING_BINS; i++) {
+			int absBin = (i < HEADING_BINS / 2) ? (HEADING_BINS / 2 - 1 - i) : (i - HEADING_BINS / 2);
+			absHistogram[absBin] += headingErrorHistogram[i];
+		}
+		for (double p : new double[] { 0.5, 0.9, 0.99, 1.0 }) {
+			printPercentile(out, p, getPercentileBin(absHistogram, p), absHistogram.length, HEADING_BIN_DEGREES);
+		}
+		out.println("  distribution (10 degree buckets):");
+		long total = sum(headingErrorHistogram);
+		if (total == 0) {
+			out.println("  no data");
+		}
+		int binsPerBucket = (int) (10. / HEADING_BIN_DEGREES);
+		for (int bucket = 0; bucket < HEADING_BINS / binsPerBucket; bucket++) {
+			long count = 0;
+			for (int i = 0; i < binsPerBucket; i++) {
+				count += headingErrorHistogram[bucket * binsPerBucket + i];
+			}
+			if (count > 0) {
+				out.printf("  [%4d, %4d[ %6.2f%%%n", bucket * 10 - 180, bucket * 10 - 170, 100. * count / total);
+			}
+		}
+
+		out.println();
+		out.println("time per autonomous action, by number in the plan [s]:");
+		for (int i = 0; i < MAX_ACTIONS; i++) {
+			if (actionFrames[i] > 0) {
+				out.printf("  action %3d %8.2f total, %6.2f per file  (type %s)%n", i, actionMicros[i] / 1e6,
+						actionMicros[i] / 1e6 / files, formatTypes(actionTypes[i]));
+			}
+		}
+	}
+
+	/**
+	 * Prints the upper end of the given percentile bin; the last bin also holds
+	 * everything above, so it only gives a lower bound.
+	 */
+	private static void printPercentile(PrintStream out, double p, int bin, int bins, double binWidth) {
+		String value;
+		if (bin < 0) {
+			value = "no data";
+		} else if (bin == bins - 1) {
+			value = String.format(">= %.1f", bin * binWidth);
+		} else {
+			value = String.format("%.1f", (bin + 1) * binWidth);
+		}
+		out.printf("  p%-5s %8s%n", formatPercentile(p), value);
+	}
+
+	/**
+	 * The bin the given percentile falls into, or -1 if the histogram is empty.
+	 */
+	private static int getPercentileBin(long[] histogram, double percentile) {
+		long total = sum(histogram);
+		if (total == 0) {
+			return -1;
+		}
+		long target = (long) Math.ceil(percentile * total);
+		long count = 0;
+		for (int i = 0; i < histogram.length; i++) {
+			count += histogram[i];
+			if (count >= target && count > 0) {
+				return i;
+			}
+		}
+		return histogram.length - 1;
+	}
+
+	private static long sum(long[] histogram) {
+		long total = 0;
+		for (long count : histogram) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * The action types in the given bit mask, e.g. "1" or "1/3" (different
+	 * plans may have different actions at the same number).
+	 */
+	private static String formatTypes(int types) {
+		StringBuilder result = new StringBuilder();
+		for (int type = 0; type < MAX_ACTION_TYPES; type++) {
+			if ((types & (1 << type)) != 0) {
+				result.append((result.length() > 0) ? "/" : "").append(type);
+			}
+		}
+		return (result.length() > 0) ? result.toString() : "?";
+	}
+
+	private static String formatPercentile(double p) {
+		return (p == 1.0) ? "100" : String.valueOf(p * 100).replaceAll("\\.0$", "");
+	}
+
+}
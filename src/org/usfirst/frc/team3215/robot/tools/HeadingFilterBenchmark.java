@@ -0,0 +1,70 @@
+package org.usfirst.frc.team3215.robot.tools;
+
+import java.util.Random;
+
+import org.usfirst.frc.team3215.robot.libraries.HeadingFilter;
+import org.usfirst.frc.team3215.robot.libraries.HeadingFilters;
+
+/**
+ * Offline microbenchmark (runs on a laptop or on the roboRIO via ssh) for every
+ * heading filter stage. Feeds each stage a synthetic noisy turn and reports the
+ * time per update() call.
+ * <p>
+ * Example: java -cp FRCUserProgram.jar
+ * org.usfirst.frc.team3215.robot.tools.HeadingFilterBenchmark
+ */
+public class HeadingFilterBenchmark {
+
+	private final static int SAMPLES = 4096;
+	private final static int WARMUP_ROUNDS = 500;
+	private final static int MEASURED_ROUNDS = 2000;
+	private final static double DT = 0.02;
+
+	public static void main(String[] args) {
+		// synthetic input: turning at 90 degrees/s with noise and occasional spikes
+		Random random = new Random(3215);
+		double[] headings = new double[SAMPLES];
+		double[] rates = new double[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			rates[i] = 90. + random.nextGaussian() * 2.;
+			headings[i] = i * DT * 90. + random.nextGaussian() * 0.5 + ((i % 97 == 0) ? 30. : 0.);
+		}
+
+		run("ema(0.5)", HeadingFilters.ema(0.5), headings, rates);
+		run("ema(0.9)", HeadingFilters.ema(0.9), headings, rates);
+		run("bestTwoOfThree()", HeadingFilters.bestTwoOfThree(), headings, rates);
+		run("medianOf(5)", HeadingFilters.medianOf(5), headings, rates);
+		run("medianOf(15)", HeadingFilters.medianOf(15), headings, rates);
+		run("kalman(1, 0.25)", HeadingFilters.kalman(1., 0.25), headings, rates);
+		run("rejectOutliers(720, 3)", HeadingFilters.rejectOutliers(720., 3), headings, rates);
+		run("chain(rejectOutliers, medianOf(5), kalman)", HeadingFilters.chain(
+				HeadingFilters.rejectOutliers(720., 3), HeadingFilters.medianOf(5), HeadingFilters.kalman(1., 0.25)),
+				headings, rates);
+	}
+
+	private static void run(String name, HeadingFilter filter, double[] headings, double[] rates) {
+		double sink = 0;
+		for (int round = 0; round < WARMUP_ROUNDS; round++) {
+			sink += feed(filter, headings, rates);
+		}
+
+		long startTime = System.nanoTime();
+		for (int round = 0; round < MEASURED_ROUNDS; round++) {
+			sink += feed(filter, headings, rates);
+		}
+		long elapsedTime = System.nanoTime() - startTime;
+
+		double nanosPerUpdate = (double) elapsedTime / ((long) MEASURED_ROUNDS * SAMPLES);
+		System.out.printf("%-45s %8.1f ns/update  (%s)%n", name, nanosPerUpdate, sink == 42. ? "!" : "ok");
+	}
+
+	private static double feed(HeadingFilter filter, double[] headings, double[] rates) {
+		filter.reset(headings[0]);
+		double output = 0;
+		for (int i = 0; i < headings.length; i++) {
+			output = filter.update(headings[i], rates[i], DT);
+		}
+		return output;
+	}
+
+}
@@ -0,0 +1,200 @@
+package org.usfirst.frc.team3215.robot.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.usfirst.frc.team3215.robot.hal.SimulatedBno055;
+import org.usfirst.frc.team3215.robot.hal.SimulatedClock;
+import org.usfirst.frc.team3215.robot.hal.SimulatedPlatform;
+import org.usfirst.frc.team3215.robot.libraries.BNO055;
+
+/**
+ * Offline check (runs on a laptop, not on the robot) for the heading unwrapping
+ * in BNO055 (see AnglesHelper.getTurnsCrossed). Replays synthetic spins at
+ * various rates, poll periods and dropped samples, and optionally the headings
+ * of recorded black box files, through the driver on a SimulatedBno055 and
+ * counts the samples where its continuous heading ended up on the wrong turn.
+ * For comparison, the old "jump of 350 degrees or more" rule is replayed as
+ * well. Exits with 1 if the driver missed a turn.
+ * <p>
+ * Example: java -cp FRCUserProgram.jar
+ * org.usfirst.frc.team3215.robot.tools.HeadingUnwrapReplay ~/matches/blackbox-0007.bin
+ */
+public class HeadingUnwrapReplay {
+
+	private final static int SAMPLES = 20000;
+	private final static double GYRO_NOISE = 2.; // [degrees/s]
+	private final static double HEADING_NOISE = 0.1; // [degrees]
+	private final static int MAX_INIT_POLLS = 1000;
+	private final static double INIT_PERIOD = 0.01; // [s] between polls while the driver initializes
+
+	public static void main(String[] args) throws IOException {
+		boolean failed = false;
+
+		double[] periods = { 0.010, 0.020 };
+		double[] rates = { 90., 360., 720., 1440., 2000. }; // the gyro tops out at 2000 degrees/s
+		double[] dropRates = { 0., 0.05, 0.2 };
+		for (double period : periods) {
+			for (double rate : rates) {
+				for (double dropRate : dropRates) {
+					failed |= replaySynthetic(period, rate, dropRate);
+				}
+			}
+		}
+
+		for (String arg : args) {
+			failed |= replayRecorded(new File(arg));
+		}
+
+		System.exit(failed ? 1 : 0);
+	}
+
+	/**
+	 * Spins back and forth at up to maxRate, sampled every period seconds, and
+	 * drops the given fraction of the samples.
+	 */
+	private static boolean replaySynthetic(double period, double maxRate, double dropRate) {
+		Random random = new Random(3215);
+		double[] times = new double[SAMPLES];
+		double[] headings = new double[SAMPLES];
+		double[] headingRates = new double[SAMPLES];
+		int count = 0;
+
+		double heading = 0;
+		for (int i = 0; i < SAMPLES; i++) {
+			double time = i * period;
+			// change direction every two seconds, ramping the rate up and down
+			double rate = maxRate * Math.sin(time * Math.PI / 2.);
+			heading += rate * period;
+			if (random.nextDouble() < dropRate) {
+				continue;
+			}
+			times[count] = time;
+			headings[count] = heading + random.nextGaussian() * HEADING_NOISE;
+			headingRates[count] = rate + random.nextGaussian() * GYRO_NOISE;
+			count++;
+		}
+
+		String name = String.format("synthetic %4.0f deg/s, %2.0f ms, %2.0f%% dropped", maxRate, period * 1000.,
+				dropRate * 100.);
+		return report(name, times, headings, headingRates, count);
+	}
+
+	/**
+	 * Replays the headings of a black box file. The rate of turn isn't recorded,
+	 * so the gyro is stood in for by the rate between the neighboring frames.
+	 */
+	private static boolean replayRecorded(File file) throws IOException {
+		int frameCount;
+		double[] times;
+		double[] headings;
+		try (BlackBoxReader reader = new BlackBoxReader(file)) {
+			frameCount = (int) reader.getFrameCount();
+			times = new double[frameCount];
+			headings = new double[frameCount];
+			int i = 0;
+			while (i < frameCount && reader.next()) {
+				times[i] = reader.getTimeNanos() / 1e9;
+				// the black box records the robot heading, which is the negated IMU heading
+				headings[i] = -reader.getHeading();
+				i++;
+			}
+			frameCount = i;
+		}
+
+		double[] headingRates = new double[frameCount];
+		for (int i = 0; i < frameCount; i++) {
+			int before = Math.max(i - 1, 0);
+			int after = Math.min(i + 1, frameCount - 1);
+			double dt = times[after] - times[before];
+			headingRates[i] = (dt > 0) ? (headings[after] - headings[before]) / dt : 0;
+		}
+
+		return report(file.getName(), times, headings, headingRates, frameCount);
+	}
+
+	/**
+	 * Feeds the given continuous headings (wrapped into [0,360[) and rates of turn
+	 * through the BNO055 driver on a SimulatedBno055, in burst mode as on the
+	 * robot, and compares the driver's continuous heading with the true one. The
+	 * old rule is replayed on the same wrapped headings. Prints how often each
+	 * ended up on the wrong turn, and returns true if the driver missed.
+	 */
+	private static boolean report(String name, double[] times, double[] headings, double[] headingRates,
+			int count) {
+		if (count == 0) {
+			System.out.printf("%-45s no samples%n", name);
+			return false;
+		}
+
+		SimulatedClock clock = new SimulatedClock();
+		SimulatedPlatform platform = new SimulatedPlatform(clock);
+		SimulatedBno055 sensor = platform.getImu();
+		BNO055 imu = new BNO055(platform.imuBus(BNO055.BNO055_ADDRESS_A), platform.clock(),
+				BNO055.opmode_t.OPERATION_MODE_IMUPLUS, BNO055.vector_type_t.VECTOR_EULER);
+		imu.setBurstMode(true);
+		BNO055.HeadingSample sample = new BNO055.HeadingSample();
+
+		// initialize the driver with the robot standing at the first heading (the
+		// reset during initialization clears the sensor's registers)
+		for (int i = 0; i < MAX_INIT_POLLS && !imu.isInitialized(); i++) {
+			clock.advance(INIT_PERIOD);
+			sensor.setHeading(headings[0]);
+			sensor.setGyroZ(0);
+			imu.poll();
+		}
+		if (!imu.isInitialized()) {
+			System.out.printf("%-45s the IMU didn't initialize%n", name);
+			return true;
+		}
+		double timeOffset = clock.getTimestamp() + INIT_PERIOD - times[0];
+
+		// the driver counts turns from its first sample; both start on the turn of
+		// the first sample
+		long firstTurns = (long) Math.floor(headings[0] / 360.);
+		long turnsOffset = firstTurns;
+		long thresholdTurns = firstTurns;
+		int misses = 0;
+		int thresholdMisses = 0;
+		int notSampled = 0;
+		double previousRaw = -1;
+
+		for (int i = 0; i < count; i++) {
+			clock.advance(Math.max(0, times[i] + timeOffset - clock.getTimestamp()));
+			sensor.setHeading(headings[i]);
+			sensor.setGyroZ(-headingRates[i]); // the gyro turns counterclockwise
+			long sampleCount = imu.getSampleCount();
+			imu.poll();
+			if (imu.getSampleCount() == sampleCount) {
+				notSampled++;
+				continue;
+			}
+			imu.getHeadingSample(sample);
+
+			if (Math.abs(sample.heading + turnsOffset * 360 - headings[i]) > 180.) {
+				misses++;
+				turnsOffset = Math.round((headings[i] - sample.heading) / 360.); // count each miss once
+			}
+
+			// the old rule, on the heading the sensor reported
+			double raw = sample.rawHeading;
+			if (previousRaw >= 0) {
+				double headingDiff = previousRaw - raw;
+				if (Math.abs(headingDiff) >= 350) {
+					thresholdTurns += (headingDiff > 0) ? 1 : -1;
+				}
+			}
+			if (Math.abs(raw + thresholdTurns * 360 - headings[i]) > 180.) {
+				thresholdMisses++;
+				thresholdTurns = Math.round((headings[i] - raw) / 360.);
+			}
+			previousRaw = raw;
+		}
+
+		System.out.printf("%-45s %7d samples  %5d missed turns  (350 degree rule: %5d)%s%n", name, count, misses,
+				thresholdMisses, (notSampled > 0) ? "  " + notSampled + " not sampled" : "");
+		return misses > 0 || notSampled > 0;
+	}
+
+}
@@ -0,0 +1,120 @@
+package org.usfirst.frc.team3215.robot.tools;
+
+import java.lang.management.ManagementFactory;
+
+import org.usfirst.frc.team3215.robot.hal.SimulatedBno055;
+import org.usfirst.frc.team3215.robot.hal.SimulatedClock;
+import org.usfirst.frc.team3215.robot.hal.SimulatedPlatform;
+import org.usfirst.frc.team3215.robot.libraries.BNO055;
+
+/**
+ * Offline check (runs on a laptop, not on the robot) that the BNO055 driver
+ * doesn't allocate once it's running. Polls a driver on a SimulatedBno055
+ * while the simulated robot spins, reads the results the way the ImuThread
+ * does, and reads the calibration profile, with burst mode on and off. The
+ * memory allocated by this thread is measured around the polling (see
+ * com.sun.management.ThreadMXBean) in several rounds; the JIT compiler may
+ * allocate now and then, but an allocation of the driver shows in every round.
+ * Exits with 1 if every round allocated.
+ * <p>
+ * Example: java -cp FRCUserProgram.jar
+ * org.usfirst.frc.team3215.robot.tools.ImuAllocationCheck
+ */
+public class ImuAllocationCheck {
+
+	private final static int WARMUP_POLLS = 20000;
+	private final static int MEASURED_POLLS = 10000; // per round
+	private final static int ROUNDS = 5;
+	private final static double PERIOD = 0.01; // [s] between polls
+	private final static double RATE = 720.; // [degrees/s], to cross the wrap often
+
+	public static void main(String[] args) {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)
+				|| !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			System.out.println("this JVM can't measure the memory allocated per thread");
+			System.exit(1);
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		boolean failed = false;
+		failed |= check(threads, true);
+		failed |= check(threads, false);
+		System.exit(failed ? 1 : 0);
+	}
+
+	/**
+	 * Polls a freshly initialized driver, first to warm up, then measured.
+	 * Returns true if the measured polls allocated in every round.
+	 */
+	private static boolean check(com.sun.management.ThreadMXBean threads, boolean burstMode) {
+		SimulatedClock clock = new SimulatedClock();
+		SimulatedPlatform platform = new SimulatedPlatform(clock);
+		SimulatedBno055 sensor = platform.getImu();
+		BNO055 imu = new BNO055(platform.imuBus(BNO055.BNO055_ADDRESS_A), platform.clock(),
+				BNO055.opmode_t.OPERATION_MODE_IMUPLUS, BNO055.vector_type_t.VECTOR_EULER);
+		imu.setBurstMode(burstMode);
+
+		BNO055.HeadingSample headingSample = new BNO055.HeadingSample();
+		BNO055.SampleData sampleData = new BNO055.SampleData();
+		BNO055.CalData calData = new BNO055.CalData();
+		byte[] profile = new byte[BNO055.CALIBRATION_PROFILE_LENGTH];
+		long threadId = Thread.currentThread().getId();
+
+		poll(imu, sensor, clock, 0, WARMUP_POLLS, headingSample, sampleData, calData, profile);
+		if (!imu.isInitialized()) {
+			System.out.printf("burst mode %-5s the IMU didn't initialize%n", burstMode);
+			return true;
+		}
+
+		// the measurement itself may allocate; take that off
+		long before = threads.getThreadAllocatedBytes(threadId);
+		long overhead = threads.getThreadAllocatedBytes(threadId) - before;
+
+		long samples = imu.getSampleCount();
+		long leastAllocated = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			before = threads.getThreadAllocatedBytes(threadId);
+			poll(imu, sensor, clock, WARMUP_POLLS + round * MEASURED_POLLS, MEASURED_POLLS, headingSample,
+					sampleData, calData, profile);
+			long allocated = threads.getThreadAllocatedBytes(threadId) - before - overhead;
+			leastAllocated = Math.min(leastAllocated, allocated);
+		}
+		samples = imu.getSampleCount() - samples;
+
+		System.out.printf("burst mode %-5s %d x %d polls  %8d bytes allocated in the best round  (%d samples)%n",
+				burstMode, ROUNDS, MEASURED_POLLS, leastAllocated, samples);
+		return leastAllocated > 0;
+	}
+
+	/**
+	 * Spins the simulated sensor and polls the driver, reading the results after
+	 * every poll; halfway, reads the calibration profile.
+	 */
+	private static void poll(BNO055 imu, SimulatedBno055 sensor, SimulatedClock clock, int from, int count,
+			BNO055.HeadingSample headingSample, BNO055.SampleData sampleData, BNO055.CalData calData,
+			byte[] profile) {
+		for (int i = from; i < from + count; i++) {
+			clock.advance(PERIOD);
+			// change direction every two seconds (the sensor is clockwise)
+			double rate = RATE * Math.sin(i * PERIOD * Math.PI / 2.);
+			sensor.setHeading(-RATE * 2. / Math.PI * (1. - Math.cos(i * PERIOD * Math.PI / 2.)));
+			sensor.setGyroZ(rate);
+
+			if (i == from + count / 2) {
+				imu.requestCalibrationProfile();
+			}
+			imu.poll();
+
+			imu.getHeadingSample(headingSample);
+			imu.getHeadingRate();
+			imu.getSample(sampleData);
+			imu.getCalibration(calData);
+			imu.isCalibrated();
+			imu.getTemp();
+			imu.getCalibrationProfile(profile);
+		}
+	}
+
+}
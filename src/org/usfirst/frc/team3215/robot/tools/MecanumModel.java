@@ -0,0 +1,136 @@
+package org.usfirst.frc.team3215.robot.tools;
+
+/**
+ * A simple model of how the robot moves on the field, for simulations: the
+ * wheel outputs give the robot speeds (mecanum forward kinematics), scaled by
+ * the top speeds, and the robot reaches them with a first order lag. No wheel
+ * slip, no collisions, no battery sag.
+ * <p>
+ * Field coordinates: x points away from the driver station (the robot starts
+ * facing that way), y to the left, in meters. The heading is counterclockwise
+ * in degrees, as in MotorHelper.drive().
+ */
+public class MecanumModel {
+
+	private final static double DEGREES_TO_RAD = Math.PI / 180.;
+
+	private final double maxSpeed; // [m/s]
+	private final double maxStrafeSpeed; // [m/s]
+	private final double maxTurnRate; // [degrees/s]
+	private final double timeConstant; // [s]
+
+	private double x = 0;
+	private double y = 0;
+	private double heading = 0;
+
+	// robot frame: forward, left, counterclockwise
+	private double forwardSpeed = 0;
+	private double leftSpeed = 0;
+	private double turnRate = 0;
+	private double forwardAcceleration = 0;
+	private double leftAcceleration = 0;
+
+	/**
+	 * @param maxSpeed
+	 *            Top speed forward [m/s].
+	 * @param maxStrafeSpeed
+	 *            Top speed sideways [m/s] (mecanum wheels are slower sideways).
+	 * @param maxTurnRate
+	 *            Top rate of turn [degrees/s].
+	 * @param timeConstant
+	 *            Time to reach 63% of a new speed [s].
+	 */
+	public MecanumModel(double maxSpeed, double maxStrafeSpeed, double maxTurnRate, double timeConstant) {
+		this.maxSpeed = maxSpeed;
+		this.maxStrafeSpeed = maxStrafeSpeed;
+		this.maxTurnRate = maxTurnRate;
+		this.timeConstant = timeConstant;
+	}
+
+	/**
+	 * Puts the robot at the given pose, standing still.
+	 */
+	public void setPose(double x, double y, double heading) {
+		this.x = x;
+		this.y = y;
+		this.heading = heading;
+		forwardSpeed = 0;
+		leftSpeed = 0;
+		turnRate = 0;
+		forwardAcceleration = 0;
+		leftAcceleration = 0;
+	}
+
+	/**
+	 * Moves the robot for dt seconds at the given wheel outputs (-1 to 1, positive
+	 * turns the wheel forward; i.e. the right motor outputs with their inversion
+	 * undone).
+	 */
+	public void step(double dt, double frontLeft, double rearLeft, double frontRight, double rearRight) {
+
+		// mecanum forward kinematics (see SimulatedPlatform.SimulatedMecanum for the
+		// reverse)
+		double forward = (frontLeft + frontRight + rearLeft + rearRight) / 4.;
+		double right = (frontLeft - frontRight - rearLeft + rearRight) / 4.;
+		double clockwise = (frontLeft - frontRight + rearLeft - rearRight) / 4.;
+
+		// first order lag towards the commanded speeds
+		double lag = (timeConstant > 0) ? 1. - Math.exp(-dt / timeConstant) : 1.;
+		double previousForwardSpeed = forwardSpeed;
+		double previousLeftSpeed = leftSpeed;
+		forwardSpeed += (forward * maxSpeed - forwardSpeed) * lag;
+		leftSpeed += (-right * maxStrafeSpeed - leftSpeed) * lag;
+		turnRate += (-clockwise * maxTurnRate - turnRate) * lag;
+
+		// what an accelerometer on the robot would see (including the centripetal
+		// part)
+		double omega = turnRate * DEGREES_TO_RAD;
+		forwardAcceleration = (forwardSpeed - previousForwardSpeed) / dt - omega * leftSpeed;
+		leftAcceleration = (leftSpeed - previousLeftSpeed) / dt + omega * forwardSpeed;
+
+		// integrate on the field at the middle of the step
+		double midHeading = (heading + turnRate * dt / 2.) * DEGREES_TO_RAD;
+		double cos = Math.cos(midHeading);
+		double sin = Math.sin(midHeading);
+		x += (forwardSpeed * cos - leftSpeed * sin) * dt;
+		y += (forwardSpeed * sin + leftSpeed * cos) * dt;
+		heading += turnRate * dt;
+	}
+
+	public double getX() {
+		return x;
+	}
+
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * Counterclockwise, in degrees, not wrapped.
+	 */
+	public double getHeading() {
+		return heading;
+	}
+
+	/**
+	 * Rate of turn, counterclockwise [degrees/s].
+	 */
+	public double getTurnRate() {
+		return turnRate;
+	}
+
+	/**
+	 * Acceleration along the robot's forward axis [m/s^2].
+	 */
+	public double getForwardAcceleration() {
+		return forwardAcceleration;
+	}
+
+	/**
+	 * Acceleration along the robot's left axis [m/s^2].
+	 */
+	public double getLeftAcceleration() {
+		return leftAcceleration;
+	}
+
+}
@@ -0,0 +1,214 @@
+package org.usfirst.frc.team3215.robot.tools;
+
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.usfirst.frc.team3215.robot.config.AutonomousModes;
+import org.usfirst.frc.team3215.robot.libraries.AnglesHelper;
+
+/**
+ * Offline command line tool (runs on a laptop, not on the robot) that scores
+ * how robust each autonomous mode is. Runs every mode many times in the
+ * AutonomousSimulator, each run with a different start pose, motor response
+ * (top speeds and lag of the mecanum model), IMU noise and bias, and loop
+ * jitter, in parallel on all cores. The game data cycles through all eight
+ * combinations.
+ * <p>
+ * A run succeeds if it ends within END_DISTANCE and END_HEADING of the
+ * undisturbed run of the same mode and game data, i.e. where the plan was
+ * tuned to go. Prints the success rate and the spread of the end pose per mode.
+ * Runs are seeded by their number, so results don't depend on the number of
+ * cores.
+ * <p>
+ * Example (2000 runs per mode): java -cp FRCUserProgram.jar
+ * org.usfirst.frc.team3215.robot.tools.MonteCarloRunner 2000
+ */
+public class MonteCarloRunner {
+
+	private final static int DEFAULT_RUNS_PER_MODE = 1000;
+	private final static long SEED = 3215;
+
+	// success: how close to the undisturbed end pose
+	private final static double END_DISTANCE = 0.3; // [m]
+	private final static double END_HEADING = 10.; // [degrees]
+
+	// disturbances (standard deviations)
+	private final static double START_POSITION = 0.05; // [m]
+	private final static double START_HEADING = 2.; // [degrees]
+	private final static double SPEED_VARIATION = 0.10; // of the top speeds
+	private final static double LAG_VARIATION = 0.30; // of the time constant
+	private final static double HEADING_NOISE = 0.5; // [degrees]
+	private final static double GYRO_NOISE = 1.; // [degrees/s]
+	private final static double ACCELERATION_NOISE = 0.3; // [m/s^2]
+	private final static double ACCELERATION_BIAS = 0.1; // [m/s^2], per run
+	private final static double PERIOD_JITTER = 0.003; // [s]
+
+	public static void main(String[] args) {
+		int runsPerMode = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_RUNS_PER_MODE;
+		AutonomousModes[] modes = AutonomousModes.values();
+		String[] gameData = AutonomousSimulator.getGameDataCombinations();
+
+		// where each mode ends without disturbances
+		double[][][] nominalEndPoses = new double[modes.length][gameData.length][];
+		for (int i = 0; i < modes.length; i++) {
+			for (int j = 0; j < gameData.length; j++) {
+				AutonomousSimulator.Run run = AutonomousSimulator.simulate(modes[i], gameData[j],
+						AutonomousSimulator.newModel(), null);
+				nominalEndPoses[i][j] = new double[] { run.getFinalX(), run.getFinalY(), run.getFinalHeading() };
+			}
+		}
+
+		long startTime = System.currentTimeMillis();
+		Scores[] scores = ForkJoinPool.commonPool()
+				.invoke(new RunTask(modes, gameData, nominalEndPoses, runsPerMode, 0, modes.length * runsPerMode));
+		long elapsedTime = System.currentTimeMillis() - startTime;
+
+		System.out.printf("%-22s %8s %8s %8s %8s %10s %8s%n", "mode", "success", "sd x", "sd y", "sd head",
+				"mean dist", "max dist");
+		for (int i = 0; i < modes.length; i++) {
+			scores[i].print(System.out, modes[i]);
+		}
+		System.out.println();
+		System.out.println("simulated " + (modes.length * runsPerMode) + " autonomous runs on "
+				+ ForkJoinPool.commonPool().getParallelism() + " threads in " + elapsedTime + " milliseconds");
+	}
+
+	/**
+	 * Simulates one disturbed run, seeded by its number.
+	 */
+	private static void simulate(AutonomousModes mode, String gameData, double[] nominalEndPose, long runNumber,
+			Scores scores) {
+		Random random = new Random(SEED + runNumber);
+
+		MecanumModel model = new MecanumModel(
+				AutonomousSimulator.MAX_SPEED * (1. + random.nextGaussian() * SPEED_VARIATION),
+				AutonomousSimulator.MAX_STRAFE_SPEED * (1. + random.nextGaussian() * SPEED_VARIATION),
+				AutonomousSimulator.MAX_TURN_RATE * (1. + random.nextGaussian() * SPEED_VARIATION),
+				AutonomousSimulator.TIME_CONSTANT * Math.max(0.1, 1. + random.nextGaussian() * LAG_VARIATION));
+		model.setPose(random.nextGaussian() * START_POSITION, random.nextGaussian() * START_POSITION,
+				random.nextGaussian() * START_HEADING);
+		AutonomousSimulator.Disturbances disturbances = new AutonomousSimulator.Disturbances(random, HEADING_NOISE,
+				GYRO_NOISE, ACCELERATION_NOISE, ACCELERATION_BIAS, PERIOD_JITTER);
+
+		AutonomousSimulator.Run run = AutonomousSimulator.simulate(mode, gameData, model, disturbances, null);
+		scores.add(run.getFinalX() - nominalEndPose[0], run.getFinalY() - nominalEndPose[1],
+				AnglesHelper.getAngleDifference(nominalEndPose[2], run.getFinalHeading()));
+	}
+
+	/**
+	 * Simulates a range of runs (numbered mode by mode): single runs directly,
+	 * larger ranges by splitting them in two and merging the scores.
+	 */
+	private static class RunTask extends RecursiveTask<Scores[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final AutonomousModes[] modes;
+		private final String[] gameData;
+		private final double[][][] nominalEndPoses;
+		private final int runsPerMode;
+		private final int from;
+		private final int to;
+
+		RunTask(AutonomousModes[] modes, String[] gameData, double[][][] nominalEndPoses, int runsPerMode, int from,
+				int to) {
+			this.modes = modes;
+			this.gameData = gameData;
+			this.nominalEndPoses = nominalEndPoses;
+			this.runsPerMode = runsPerMode;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Scores[] compute() {
+			if (to - from <= 1) {
+				Scores[] scores = new Scores[modes.length];
+				for (int i = 0; i < modes.length; i++) {
+					scores[i] = new Scores();
+				}
+				if (to > from) {
+					int mode = from / runsPerMode;
+					int combination = (from % runsPerMode) % gameData.length;
+					simulate(modes[mode], gameData[combination], nominalEndPoses[mode][combination], from,
+							scores[mode]);
+				}
+				return scores;
+			}
+
+			int middle = (from + to) >>> 1;
+			RunTask left = new RunTask(modes, gameData, nominalEndPoses, runsPerMode, from, middle);
+			RunTask right = new RunTask(modes, gameData, nominalEndPoses, runsPerMode, middle, to);
+			left.fork();
+			Scores[] rightScores = right.compute();
+			Scores[] leftScores = left.join();
+			for (int i = 0; i < leftScores.length; i++) {
+				leftScores[i].merge(rightScores[i]);
+			}
+			return leftScores;
+		}
+	}
+
+	/**
+	 * End pose errors (against the undisturbed run) of the runs of one mode.
+	 */
+	private static class Scores {
+		private int runs = 0;
+		private int successes = 0;
+		private double sumX = 0;
+		private double sumSquaresX = 0;
+		private double sumY = 0;
+		private double sumSquaresY = 0;
+		private double sumHeading = 0;
+		private double sumSquaresHeading = 0;
+		private double sumDistance = 0;
+		private double maxDistance = 0;
+
+		void add(double errorX, double errorY, double errorHeading) {
+			double distance = Math.sqrt(errorX * errorX + errorY * errorY);
+			runs++;
+			if (distance <= END_DISTANCE && Math.abs(errorHeading) <= END_HEADING) {
+				successes++;
+			}
+			sumX += errorX;
+			sumSquaresX += errorX * errorX;
+			sumY += errorY;
+			sumSquaresY += errorY * errorY;
+			sumHeading += errorHeading;
+			sumSquaresHeading += errorHeading * errorHeading;
+			sumDistance += distance;
+			maxDistance = Math.max(maxDistance, distance);
+		}
+
+		void merge(Scores other) {
+			runs += other.runs;
+			successes += other.successes;
+			sumX += other.sumX;
+			sumSquaresX += other.sumSquaresX;
+			sumY += other.sumY;
+			sumSquaresY += other.sumSquaresY;
+			sumHeading += other.sumHeading;
+			sumSquaresHeading += other.sumSquaresHeading;
+			sumDistance += other.sumDistance;
+			maxDistance = Math.max(maxDistance, other.maxDistance);
+		}
+
+		private double standardDeviation(double sum, double sumSquares) {
+			double mean = sum / runs;
+			return Math.sqrt(Math.max(0, sumSquares / runs - mean * mean));
+		}
+
+		void print(PrintStream out, AutonomousModes mode) {
+			if (runs == 0) {
+				out.printf("%-22s no runs%n", mode);
+				return;
+			}
+			out.printf("%-22s %7.1f%% %6.2f m %6.2f m %8.1f %8.2f m %6.2f m%n", mode, 100. * successes / runs,
+					standardDeviation(sumX, sumSquaresX), standardDeviation(sumY, sumSquaresY),
+					standardDeviation(sumHeading, sumSquaresHeading), sumDistance / runs, maxDistance);
+		}
+	}
+
+}
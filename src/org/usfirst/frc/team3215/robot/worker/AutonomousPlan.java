@@ -0,0 +1,170 @@
+package org.usfirst.frc.team3215.robot.worker;
+
+import org.usfirst.frc.team3215.robot.libraries.AnglesHelper;
+
+/**
+ * One compiled autonomous plan: a series of actions, each an action type, a
+ * fixed number of parameters and a duration, kept in primitive arrays (see
+ * AutonomousPlans for how plans are compiled from the plan file). Executing a
+ * plan only indexes into these arrays. Immutable.
+ * <p>
+ * The actions come in groups that run one after the other. Within a group, up
+ * to MAX_TRACKS tracks run in parallel, each a series of actions; a group ends
+ * when all its tracks have ended (join). A single action is a group with one
+ * track. At most one track of a group drives, and each linear motor is
+ * commanded by at most one track of a group.
+ * <p>
+ * Drive actions may have a motion profile (see MotionProfile), sampled when
+ * the plan is compiled. Follow actions drive along one of the plan's paths
+ * (see PathFollower).
+ */
+public class AutonomousPlan {
+
+	public final static int TYPE_HALT = 0; // halt all motors without jerking
+	public final static int TYPE_DRIVE = 1; // direction, speed, orientation, turn speed (see MotorHelper.drive)
+	public final static int TYPE_LINEAR = 2; // motor number, speed (see MotorHelper.linear)
+	public final static int TYPE_FOLLOW = 3; // path number, speed, orientation, turn speed (see PathFollower)
+	public final static int PARAMETERS = 4; // per action, whether used or not
+	public final static int MAX_TRACKS = 4; // per group
+
+	// when an action ends
+	public final static int UNTIL_DURATION = 0; // after its duration
+	public final static int UNTIL_HEADING = 1; // heading settled at the orientation, or after its duration
+	public final static int UNTIL_ARRIVED = 2; // at the end of the path, or after its duration
+
+	/**
+	 * No actions at all (the robot halts).
+	 */
+	public final static AutonomousPlan NONE = new AutonomousPlan("no plan", new int[0], new double[0], new long[0],
+			new int[0], new double[0], new int[0], new int[0], new int[] { 0 }, new int[0], new int[0], new double[0],
+			new double[0], new WaypointPath[0]);
+
+	private final String name;
+	final int[] types;
+	final double[] parameters; // PARAMETERS per action
+	final long[] durations; // [ms]
+	final int[] untilConditions; // UNTIL_...
+	final double[] tolerances; // UNTIL_HEADING: how close to the orientation [degrees]
+	final int[] samples; // UNTIL_HEADING: for how many frames in a row
+	final int[] nextActions; // the next action in the same track, or -1 at the end of the track
+	final int[] groupStarts; // first action of each group, and the number of actions at the end
+	final int[] firstActions; // MAX_TRACKS per group: the first action of each track, or -1 if unused
+	final int[] profileStarts; // first sample of each action's motion profile, or -1 if none
+	final double[] profileSpeeds; // every MotionProfile.PERIOD, for all profiles
+	final double[] profileOrientations; // [degrees], as above
+	private final WaypointPath[] paths; // by path number
+
+	AutonomousPlan(String name, int[] types, double[] parameters, long[] durations, int[] untilConditions,
+			double[] tolerances, int[] samples, int[] nextActions, int[] groupStarts, int[] firstActions,
+			int[] profileStarts, double[] profileSpeeds, double[] profileOrientations, WaypointPath[] paths) {
+		this.name = name;
+		this.types = types;
+		this.parameters = parameters;
+		this.durations = durations;
+		this.untilConditions = untilConditions;
+		this.tolerances = tolerances;
+		this.samples = samples;
+		this.nextActions = nextActions;
+		this.groupStarts = groupStarts;
+		this.firstActions = firstActions;
+		this.profileStarts = profileStarts;
+		this.profileSpeeds = profileSpeeds;
+		this.profileOrientations = profileOrientations;
+		this.paths = paths;
+	}
+
+	/**
+	 * Where the plan came from, for the log (e.g. "LEFT_DRIVE_AND_DROP switch=L,
+	 * line 12").
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Number of actions.
+	 */
+	public int size() {
+		return types.length;
+	}
+
+	/**
+	 * Number of groups (see above).
+	 */
+	public int getGroupCount() {
+		return groupStarts.length - 1;
+	}
+
+	public int getType(int action) {
+		return types[action];
+	}
+
+	public double getParameter(int action, int parameter) {
+		return parameters[action * PARAMETERS + parameter];
+	}
+
+	/**
+	 * Duration of the given action in milliseconds (with a condition: the
+	 * longest it may take).
+	 */
+	public long getDuration(int action) {
+		return durations[action];
+	}
+
+	/**
+	 * The path of the given path number (see TYPE_FOLLOW).
+	 */
+	public WaypointPath getPath(int pathNumber) {
+		return paths[pathNumber];
+	}
+
+	/**
+	 * Whether the given action drives along a motion profile.
+	 */
+	public boolean hasProfile(int action) {
+		return profileStarts[action] >= 0;
+	}
+
+	/**
+	 * Drive speed of the motion profile of the given action, the given time [ms]
+	 * after the action started.
+	 */
+	public double getProfileSpeed(int action, long time) {
+		int sample = getProfileSample(action, time);
+		double fraction = getProfileFraction(action, time);
+		return profileSpeeds[sample] + (profileSpeeds[sample + 1] - profileSpeeds[sample]) * fraction;
+	}
+
+	/**
+	 * Orientation [degrees] of the motion profile of the given action, the given
+	 * time [ms] after the action started.
+	 */
+	public double getProfileOrientation(int action, long time) {
+		int sample = getProfileSample(action, time);
+		double fraction = getProfileFraction(action, time);
+		return AnglesHelper.getPlainAngle(profileOrientations[sample] + fraction
+				* AnglesHelper.getAngleDifference(profileOrientations[sample], profileOrientations[sample + 1]));
+	}
+
+	/**
+	 * The sample at or before the given time (never the last one).
+	 */
+	private int getProfileSample(int action, long time) {
+		long clamped = Math.max(0, Math.min(time, durations[action] - 1));
+		return profileStarts[action] + (int) (clamped / MotionProfile.PERIOD);
+	}
+
+	/**
+	 * How far the given time is between the sample at or before it and the next
+	 * (0 to 1); the profile ends at the action's duration.
+	 */
+	private double getProfileFraction(int action, long time) {
+		if (time >= durations[action]) {
+			return 1.;
+		}
+		long clamped = Math.max(0, time);
+		long sampleTime = clamped - clamped % MotionProfile.PERIOD;
+		return (double) (clamped - sampleTime) / Math.min(MotionProfile.PERIOD, durations[action] - sampleTime);
+	}
+
+}
@@ -0,0 +1,695 @@
+package org.usfirst.frc.team3215.robot.worker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.usfirst.frc.team3215.robot.MotorHelper;
+import org.usfirst.frc.team3215.robot.config.AutonomousModes;
+
+/**
+ * All autonomous plans, compiled once (in robotInit) from a plan file, so plans
+ * can be changed on the robot without a redeploy. The plan file is plain text,
+ * one statement per line; '#' starts a comment:
+ *
+ * <pre>
+ * # a named action: one of the built-in actions (or another named action) with some parameters set
+ * action liftUp linear motor=LIFT speed=0.5
+ *
+ * # the actions of a plan follow its "plan" line; the first plan that matches the
+ * # selected mode and game data (switch, scale, farSwitch = L or R) is executed
+ * plan LEFT_DRIVE_AND_DROP switch=L
+ *     parallel
+ *     track
+ *         drive direction=0 speed=0.5 orientation=0 turn=0.5 duration=2000
+ *     track
+ *         liftUp duration=500
+ *     join
+ *     cubeOutput duration=2000
+ * </pre>
+ *
+ * Between "parallel" and "join", each "track" runs its actions in parallel to
+ * the other tracks (see AutonomousPlan); the plan goes on after "join" once all
+ * tracks are done. Only one track may drive, and each linear motor may be used
+ * by only one track.
+ *
+ * Built-in actions: "halt" (halt all motors), "drive" (direction, speed,
+ * orientation, turn; see MotorHelper.drive) and "linear" (motor, speed; see
+ * MotorHelper.linearSingle). Every action in a plan needs a duration in
+ * milliseconds. A drive action with "until=heading" ends early, as soon as the
+ * heading has been within "tolerance" degrees (default 2) of its orientation
+ * for "samples" frames in a row (default 3); its duration is then only a cap,
+ * e.g. for turning on the spot:
+ *
+ * <pre>
+ * drive direction=0 speed=0 orientation=180 turn=0.5 duration=2000 until=heading tolerance=3
+ * </pre>
+ *
+ * A drive action with "profile=trapezoid" or "profile=scurve" and "accel" (drive
+ * speed per second) ramps its speed up and down within its duration, and turns
+ * from the previous drive action's orientation to its own along the way (see
+ * MotionProfile):
+ *
+ * <pre>
+ * drive direction=0 speed=0.8 orientation=0 turn=0.5 duration=2000 profile=scurve accel=2
+ * </pre>
+ *
+ * "follow" (path, speed, orientation, turn) drives along a path, turning to the
+ * orientation on the way, and ends on arrival at the end of the path (see
+ * PathFollower); its duration is a cap. A path is a series of waypoints (x, y
+ * in meters from where the robot starts: x forward, y left), with how far
+ * ahead to aim (lookahead, in meters, default 0.5):
+ *
+ * <pre>
+ * path toLeftScale lookahead=0.6 0,0 1,1 3,1.5
+ * plan ...
+ *     follow path=toLeftScale speed=0.6 orientation=90 turn=0.5 duration=5000
+ * </pre>
+ *
+ * Anything unknown, missing or out of range fails the whole file
+ * with an IllegalArgumentException that names the line.
+ */
+public class AutonomousPlans {
+
+	public final static String FILE_NAME = "autonomous.txt"; // in the platform data directory
+
+	// by action type (see AutonomousPlan.TYPE_...)
+	private final static String[] TYPE_NAMES = { "halt", "drive", "linear", "follow" };
+	private final static String[][] PARAMETER_NAMES = { {}, { "direction", "speed", "orientation", "turn" },
+			{ "motor", "speed" }, { "path", "speed", "orientation", "turn" } };
+	private final static String DURATION = "duration";
+	private final static String UNTIL = "until";
+	private final static String TOLERANCE = "tolerance";
+	private final static String SAMPLES = "samples";
+	private final static String PROFILE = "profile";
+	private final static String ACCELERATION = "accel";
+	// parameters that aren't action parameters (see PARAMETER_NAMES)
+	private final static String[] COMMON_PARAMETER_NAMES = { DURATION, UNTIL, TOLERANCE, SAMPLES, PROFILE,
+			ACCELERATION };
+	private final static String[] PROFILE_NAMES = { "none", "trapezoid", "scurve" }; // see MotionProfile
+	private final static double DEFAULT_TOLERANCE = 2.; // [degrees]
+	private final static int DEFAULT_SAMPLES = 3;
+	private final static String[] KEYWORDS = { "action", "path", "plan", "parallel", "track", "join" };
+	private final static String LOOKAHEAD = "lookahead";
+	private final static double DEFAULT_LOOKAHEAD = 0.5; // [m]
+
+	// by game data character
+	private final static String[] CONDITION_NAMES = { "switch", "scale", "farSwitch" };
+
+	public final static int GAME_DATA_COMBINATIONS = 8; // L or R, three times
+
+	private final List<Entry> entries;
+
+	/**
+	 * A plan, and when to use it.
+	 */
+	private static class Entry {
+		final AutonomousModes mode;
+		final char[] conditions; // 'L', 'R', or 0 for either, by game data character
+		final AutonomousPlan plan;
+
+		Entry(AutonomousModes mode, char[] conditions, AutonomousPlan plan) {
+			this.mode = mode;
+			this.conditions = conditions;
+			this.plan = plan;
+		}
+
+		boolean matches(AutonomousModes mode, String gameData) {
+			if (mode != this.mode) {
+				return false;
+			}
+			for (int i = 0; i < conditions.length; i++) {
+				if (conditions[i] != 0 && conditions[i] != gameData.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private AutonomousPlans(List<Entry> entries) {
+		this.entries = entries;
+	}
+
+	/**
+	 * The plans built into the robot program, for when there is no (valid) plan
+	 * file.
+	 */
+	public static AutonomousPlans getDefault() {
+		return parse(DefaultAutonomousPlans.TEXT);
+	}
+
+	/**
+	 * Compiles the given plan file.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If anything in the file is wrong (the message names the line).
+	 */
+	public static AutonomousPlans parse(String text) {
+		Compiler compiler = new Compiler();
+		String[] lines = text.split("\r?\n");
+		for (int i = 0; i < lines.length; i++) {
+			try {
+				compiler.compileLine(lines[i], i + 1);
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("line " + (i + 1) + ": " + e.getMessage());
+			}
+		}
+		compiler.finishPlan();
+		return new AutonomousPlans(compiler.entries);
+	}
+
+	/**
+	 * The plan to execute for the given mode and game data (three characters, L
+	 * or R), or null if no plan matches.
+	 */
+	public AutonomousPlan select(AutonomousModes mode, String gameData) {
+		for (Entry entry : entries) {
+			if (entry.matches(mode, gameData)) {
+				return entry.plan;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Index (0 to 7) of the given game data: the first three characters are bits
+	 * (anything other than 'L' is 'R'), the first character the highest. The game
+	 * data must have three characters.
+	 */
+	public static int getGameDataIndex(String gameData) {
+		int index = 0;
+		for (int i = 0; i < 3; i++) {
+			index = (index << 1) | (Character.toUpperCase(gameData.charAt(i)) == 'L' ? 0 : 1);
+		}
+		return index;
+	}
+
+	/**
+	 * The game data of the given index (see getGameDataIndex), e.g. "LRL" for 2.
+	 */
+	public static String getGameData(int index) {
+		char[] gameData = new char[3];
+		for (int i = 0; i < 3; i++) {
+			gameData[i] = ((index >> (2 - i)) & 1) == 0 ? 'L' : 'R';
+		}
+		return new String(gameData);
+	}
+
+	/**
+	 * Number of plans.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Turns the lines of a plan file into plans. Not thread safe; one per file.
+	 */
+	private static class Compiler {
+
+		/**
+		 * A built-in or named action: the action type, and the parameters that are
+		 * already set.
+		 */
+		private static class Definition {
+			final int type;
+			final Map<String, String> parameters;
+
+			Definition(int type, Map<String, String> parameters) {
+				this.type = type;
+				this.parameters = parameters;
+			}
+		}
+
+		final List<Entry> entries = new ArrayList<Entry>();
+		private final Map<String, Definition> definitions = new HashMap<String, Definition>();
+		private final List<WaypointPath> paths = new ArrayList<WaypointPath>();
+		private final Map<String, Integer> pathNumbers = new HashMap<String, Integer>();
+
+		// the plan being compiled
+		private AutonomousModes mode = null;
+		private char[] conditions;
+		private String name;
+		private int size;
+		private int[] types = new int[16];
+		private double[] parameters = new double[16 * AutonomousPlan.PARAMETERS];
+		private long[] durations = new long[16];
+		private int[] untilConditions = new int[16];
+		private double[] tolerances = new double[16];
+		private int[] samples = new int[16];
+		private int[] nextActions = new int[16];
+		private int groupCount;
+		private int[] groupStarts = new int[16];
+		private int[] firstActions = new int[16 * AutonomousPlan.MAX_TRACKS];
+		private int[] profileStarts = new int[16];
+		private int profileSize;
+		private double[] profileSpeeds = new double[256];
+		private double[] profileOrientations = new double[256];
+		private double lastOrientation; // of the most recent drive action, where a profile turns from
+
+		// the group being compiled
+		private boolean parallel = false; // between "parallel" and "join"
+		private int track;
+		private final int[] lastActions = new int[AutonomousPlan.MAX_TRACKS];
+		private int drivingTrack;
+		private final int[] motorTracks = new int[16]; // by motor number
+
+		Compiler() {
+			for (int type = 0; type < TYPE_NAMES.length; type++) {
+				definitions.put(TYPE_NAMES[type], new Definition(type, new HashMap<String, String>()));
+			}
+		}
+
+		void compileLine(String line, int lineNumber) {
+			int comment = line.indexOf('#');
+			if (comment >= 0) {
+				line = line.substring(0, comment);
+			}
+			line = line.trim();
+			if (line.isEmpty()) {
+				return;
+			}
+
+			String[] words = line.split("\\s+");
+			if (words[0].equals("action")) {
+				compileDefinition(words);
+			} else if (words[0].equals("path")) {
+				compilePath(words);
+			} else if (words[0].equals("plan")) {
+				finishPlan();
+				startPlan(words, lineNumber);
+			} else if (words[0].equals("parallel")) {
+				if (mode == null || parallel) {
+					throw new IllegalArgumentException("'parallel' outside of a plan, or before 'join'");
+				}
+				startGroup();
+				parallel = true;
+				track = -1;
+			} else if (words[0].equals("track")) {
+				if (!parallel) {
+					throw new IllegalArgumentException("'track' outside of 'parallel'");
+				}
+				if (track >= 0 && lastActions[track] < 0) {
+					throw new IllegalArgumentException("empty track");
+				}
+				track++;
+				if (track >= AutonomousPlan.MAX_TRACKS) {
+					throw new IllegalArgumentException("more than " + AutonomousPlan.MAX_TRACKS + " tracks");
+				}
+			} else if (words[0].equals("join")) {
+				if (!parallel) {
+					throw new IllegalArgumentException("'join' without 'parallel'");
+				}
+				if (track < 0 || lastActions[track] < 0) {
+					throw new IllegalArgumentException("empty track");
+				}
+				parallel = false;
+			} else {
+				compileAction(words);
+			}
+		}
+
+		/**
+		 * action name definition key=value ...
+		 */
+		private void compileDefinition(String[] words) {
+			if (words.length < 3) {
+				throw new IllegalArgumentException("expected: action <name> <action> [parameter=value ...]");
+			}
+			String actionName = words[1];
+			if (Arrays.asList(KEYWORDS).contains(actionName)) {
+				throw new IllegalArgumentException("'" + actionName + "' is a reserved word");
+			}
+			if (definitions.containsKey(actionName)) {
+				throw new IllegalArgumentException("action '" + actionName + "' is already defined");
+			}
+			Definition base = getDefinition(words[2]);
+			Map<String, String> actionParameters = new HashMap<String, String>(base.parameters);
+			putParameters(words, 3, base.type, actionParameters);
+			definitions.put(actionName, new Definition(base.type, actionParameters));
+		}
+
+		/**
+		 * path name [lookahead=meters] x,y x,y ...
+		 */
+		private void compilePath(String[] words) {
+			if (words.length < 2) {
+				throw new IllegalArgumentException("expected: path <name> [lookahead=meters] <x,y> <x,y> ...");
+			}
+			String pathName = words[1];
+			if (pathNumbers.containsKey(pathName)) {
+				throw new IllegalArgumentException("path '" + pathName + "' is already defined");
+			}
+			int from = 2;
+			double lookahead = DEFAULT_LOOKAHEAD;
+			if (words.length > 2 && words[2].startsWith(LOOKAHEAD + "=")) {
+				lookahead = parseValue(AutonomousPlan.TYPE_FOLLOW, LOOKAHEAD, splitParameter(words[2])[1]);
+				from = 3;
+			}
+			if (words.length - from < 2) {
+				throw new IllegalArgumentException("path '" + pathName + "' needs at least two waypoints");
+			}
+			double[] waypoints = new double[(words.length - from) * 2];
+			for (int i = from; i < words.length; i++) {
+				String[] coordinates = words[i].split(",", -1);
+				if (coordinates.length != 2) {
+					throw new IllegalArgumentException("expected a waypoint x,y (in meters), not '" + words[i] + "'");
+				}
+				waypoints[(i - from) * 2] = parseValue(AutonomousPlan.TYPE_FOLLOW, "x", coordinates[0]);
+				waypoints[(i - from) * 2 + 1] = parseValue(AutonomousPlan.TYPE_FOLLOW, "y", coordinates[1]);
+			}
+			pathNumbers.put(pathName, paths.size());
+			paths.add(new WaypointPath(pathName, waypoints, lookahead));
+		}
+
+		/**
+		 * plan MODE [switch=L|R] [scale=L|R] [farSwitch=L|R]
+		 */
+		private void startPlan(String[] words, int lineNumber) {
+			if (words.length < 2) {
+				throw new IllegalArgumentException("expected: plan <autonomous mode> [switch=L|R] ...");
+			}
+			try {
+				mode = AutonomousModes.valueOf(words[1]);
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("unknown autonomous mode '" + words[1] + "'");
+			}
+			conditions = new char[CONDITION_NAMES.length];
+			for (int i = 2; i < words.length; i++) {
+				String[] keyValue = splitParameter(words[i]);
+				int condition = Arrays.asList(CONDITION_NAMES).indexOf(keyValue[0]);
+				if (condition < 0) {
+					throw new IllegalArgumentException("unknown condition '" + keyValue[0] + "', expected one of "
+							+ Arrays.toString(CONDITION_NAMES));
+				}
+				if (!keyValue[1].equals("L") && !keyValue[1].equals("R")) {
+					throw new IllegalArgumentException("condition '" + keyValue[0] + "' must be L or R");
+				}
+				conditions[condition] = keyValue[1].charAt(0);
+			}
+			StringBuilder planName = new StringBuilder();
+			for (int i = 1; i < words.length; i++) {
+				planName.append(words[i]).append(' ');
+			}
+			name = planName.append("(line ").append(lineNumber).append(')').toString();
+			size = 0;
+			groupCount = 0;
+			profileSize = 0;
+			lastOrientation = 0; // the heading is zeroed before autonomous
+			parallel = false;
+		}
+
+		/**
+		 * Starts a new group of tracks.
+		 */
+		private void startGroup() {
+			if (groupCount + 1 >= groupStarts.length) {
+				groupStarts = Arrays.copyOf(groupStarts, groupStarts.length * 2);
+				firstActions = Arrays.copyOf(firstActions, groupStarts.length * AutonomousPlan.MAX_TRACKS);
+			}
+			groupStarts[groupCount] = size;
+			Arrays.fill(firstActions, groupCount * AutonomousPlan.MAX_TRACKS,
+					(groupCount + 1) * AutonomousPlan.MAX_TRACKS, -1);
+			groupCount++;
+			Arrays.fill(lastActions, -1);
+			Arrays.fill(motorTracks, -1);
+			drivingTrack = -1;
+		}
+
+		/**
+		 * action key=value ... duration=milliseconds
+		 */
+		private void compileAction(String[] words) {
+			if (mode == null) {
+				throw new IllegalArgumentException("action '" + words[0] + "' outside of a plan");
+			}
+			if (!parallel) {
+				startGroup(); // a single action is a group of its own
+				track = 0;
+			} else if (track < 0) {
+				throw new IllegalArgumentException("action '" + words[0] + "' before the first 'track'");
+			}
+			Definition definition = getDefinition(words[0]);
+			Map<String, String> actionParameters = new HashMap<String, String>(definition.parameters);
+			putParameters(words, 1, definition.type, actionParameters);
+
+			String duration = actionParameters.remove(DURATION);
+			if (duration == null) {
+				throw new IllegalArgumentException("action '" + words[0] + "' needs a duration");
+			}
+			long milliseconds;
+			try {
+				milliseconds = Long.parseLong(duration);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("duration must be whole milliseconds, not '" + duration + "'");
+			}
+			if (milliseconds <= 0) {
+				throw new IllegalArgumentException("duration must be positive");
+			}
+
+			// end early on a condition, if any
+			String until = actionParameters.remove(UNTIL);
+			String tolerance = actionParameters.remove(TOLERANCE);
+			String sampleCount = actionParameters.remove(SAMPLES);
+			int untilCondition = AutonomousPlan.UNTIL_DURATION;
+			double toleranceDegrees = DEFAULT_TOLERANCE;
+			int settleSamples = DEFAULT_SAMPLES;
+			if (until != null) {
+				if (!until.equals("heading")) {
+					throw new IllegalArgumentException("unknown condition 'until=" + until + "', expected until=heading");
+				}
+				if (definition.type != AutonomousPlan.TYPE_DRIVE) {
+					throw new IllegalArgumentException("until=heading needs a drive action");
+				}
+				untilCondition = AutonomousPlan.UNTIL_HEADING;
+			} else if (tolerance != null || sampleCount != null) {
+				throw new IllegalArgumentException("'tolerance' and 'samples' need 'until'");
+			} else if (definition.type == AutonomousPlan.TYPE_FOLLOW) {
+				untilCondition = AutonomousPlan.UNTIL_ARRIVED;
+			}
+			if (tolerance != null) {
+				toleranceDegrees = parseValue(definition.type, TOLERANCE, tolerance);
+			}
+			if (sampleCount != null) {
+				try {
+					settleSamples = Integer.parseInt(sampleCount);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("'samples' must be a whole number, not '" + sampleCount + "'");
+				}
+				if (settleSamples < 1) {
+					throw new IllegalArgumentException("'samples' must be at least 1");
+				}
+			}
+
+			// motion profile, if any
+			String profile = actionParameters.remove(PROFILE);
+			String acceleration = actionParameters.remove(ACCELERATION);
+			int profileShape = MotionProfile.NONE;
+			double accelerationValue = 0;
+			if (profile != null) {
+				profileShape = Arrays.asList(PROFILE_NAMES).indexOf(profile);
+				if (profileShape < 0) {
+					throw new IllegalArgumentException("unknown profile '" + profile + "', expected one of "
+							+ Arrays.toString(PROFILE_NAMES));
+				}
+				if (profileShape != MotionProfile.NONE && definition.type != AutonomousPlan.TYPE_DRIVE) {
+					throw new IllegalArgumentException("a profile needs a drive action");
+				}
+			}
+			if (profileShape != MotionProfile.NONE) {
+				if (acceleration == null) {
+					throw new IllegalArgumentException("profile '" + profile + "' needs '" + ACCELERATION + "'");
+				}
+				accelerationValue = parseValue(definition.type, ACCELERATION, acceleration);
+			} else if (acceleration != null) {
+				throw new IllegalArgumentException("'" + ACCELERATION + "' needs a profile");
+			}
+
+			if (size == types.length) {
+				types = Arrays.copyOf(types, size * 2);
+				parameters = Arrays.copyOf(parameters, size * 2 * AutonomousPlan.PARAMETERS);
+				durations = Arrays.copyOf(durations, size * 2);
+				nextActions = Arrays.copyOf(nextActions, size * 2);
+				untilConditions = Arrays.copyOf(untilConditions, size * 2);
+				tolerances = Arrays.copyOf(tolerances, size * 2);
+				samples = Arrays.copyOf(samples, size * 2);
+				profileStarts = Arrays.copyOf(profileStarts, size * 2);
+			}
+			types[size] = definition.type;
+			durations[size] = milliseconds;
+			untilConditions[size] = untilCondition;
+			tolerances[size] = toleranceDegrees;
+			samples[size] = settleSamples;
+			String[] names = PARAMETER_NAMES[definition.type];
+			for (int i = 0; i < names.length; i++) {
+				String value = actionParameters.get(names[i]);
+				if (value == null) {
+					throw new IllegalArgumentException("action '" + words[0] + "' needs parameter '" + names[i] + "'");
+				}
+				parameters[size * AutonomousPlan.PARAMETERS + i] = parseValue(definition.type, names[i], value);
+			}
+
+			profileStarts[size] = -1;
+			if (profileShape != MotionProfile.NONE) {
+				int profileSamples = MotionProfile.getSampleCount(milliseconds);
+				if (profileSize + profileSamples > profileSpeeds.length) {
+					int length = Math.max(profileSpeeds.length * 2, profileSize + profileSamples);
+					profileSpeeds = Arrays.copyOf(profileSpeeds, length);
+					profileOrientations = Arrays.copyOf(profileOrientations, length);
+				}
+				int offset = size * AutonomousPlan.PARAMETERS;
+				MotionProfile.sample(profileShape, parameters[offset + 1], accelerationValue, milliseconds,
+						lastOrientation, parameters[offset + 2], profileSpeeds, profileOrientations, profileSize);
+				profileStarts[size] = profileSize;
+				profileSize += profileSamples;
+			}
+			if (definition.type == AutonomousPlan.TYPE_DRIVE || definition.type == AutonomousPlan.TYPE_FOLLOW) {
+				lastOrientation = parameters[size * AutonomousPlan.PARAMETERS + 2];
+			}
+
+			// only one track may command the same motors
+			if (definition.type == AutonomousPlan.TYPE_DRIVE || definition.type == AutonomousPlan.TYPE_FOLLOW) {
+				if (drivingTrack >= 0 && drivingTrack != track) {
+					throw new IllegalArgumentException("only one track may drive");
+				}
+				drivingTrack = track;
+			} else if (definition.type == AutonomousPlan.TYPE_LINEAR) {
+				int motor = (int) parameters[size * AutonomousPlan.PARAMETERS];
+				if (motorTracks[motor] >= 0 && motorTracks[motor] != track) {
+					throw new IllegalArgumentException("motor " + actionParameters.get("motor")
+							+ " is already used by another track");
+				}
+				motorTracks[motor] = track;
+			}
+
+			// append to the track
+			nextActions[size] = -1;
+			if (lastActions[track] >= 0) {
+				nextActions[lastActions[track]] = size;
+			} else {
+				firstActions[(groupCount - 1) * AutonomousPlan.MAX_TRACKS + track] = size;
+			}
+			lastActions[track] = size;
+			size++;
+		}
+
+		/**
+		 * Adds the compiled plan, if any.
+		 */
+		void finishPlan() {
+			if (mode != null) {
+				if (parallel) {
+					throw new IllegalArgumentException("'parallel' without 'join' in plan " + name);
+				}
+				groupStarts[groupCount] = size;
+				entries.add(new Entry(mode, conditions,
+						new AutonomousPlan(name, Arrays.copyOf(types, size),
+								Arrays.copyOf(parameters, size * AutonomousPlan.PARAMETERS),
+								Arrays.copyOf(durations, size), Arrays.copyOf(untilConditions, size),
+								Arrays.copyOf(tolerances, size), Arrays.copyOf(samples, size),
+								Arrays.copyOf(nextActions, size),
+								Arrays.copyOf(groupStarts, groupCount + 1),
+								Arrays.copyOf(firstActions, groupCount * AutonomousPlan.MAX_TRACKS),
+								Arrays.copyOf(profileStarts, size), Arrays.copyOf(profileSpeeds, profileSize),
+								Arrays.copyOf(profileOrientations, profileSize), paths.toArray(new WaypointPath[0]))));
+				mode = null;
+			}
+		}
+
+		private Definition getDefinition(String actionName) {
+			Definition definition = definitions.get(actionName);
+			if (definition == null) {
+				throw new IllegalArgumentException("unknown action '" + actionName + "'");
+			}
+			return definition;
+		}
+
+		private void putParameters(String[] words, int from, int type, Map<String, String> actionParameters) {
+			for (int i = from; i < words.length; i++) {
+				String[] keyValue = splitParameter(words[i]);
+				if (!Arrays.asList(COMMON_PARAMETER_NAMES).contains(keyValue[0])) {
+					if (!Arrays.asList(PARAMETER_NAMES[type]).contains(keyValue[0])) {
+						throw new IllegalArgumentException("unknown parameter '" + keyValue[0] + "' for "
+								+ TYPE_NAMES[type] + ", expected one of " + Arrays.toString(PARAMETER_NAMES[type]));
+					}
+					parseValue(type, keyValue[0], keyValue[1]); // fail early
+				}
+				actionParameters.put(keyValue[0], keyValue[1]);
+			}
+		}
+
+		private static String[] splitParameter(String word) {
+			int equals = word.indexOf('=');
+			if (equals <= 0 || equals == word.length() - 1) {
+				throw new IllegalArgumentException("expected parameter=value, not '" + word + "'");
+			}
+			return new String[] { word.substring(0, equals), word.substring(equals + 1) };
+		}
+
+		/**
+		 * Parses and range checks a parameter value.
+		 */
+		private double parseValue(int type, String parameter, String value) {
+			if (parameter.equals("motor")) {
+				switch (value) {
+				case "LIFT":
+					return MotorHelper.LIFT;
+				case "CUBIE_DEPLOY":
+					return MotorHelper.CUBIE_DEPLOY;
+				case "CUBIE_INTAKE":
+					return MotorHelper.CUBIE_INTAKE;
+				case "WINCH":
+					return MotorHelper.WINCH;
+				default:
+					throw new IllegalArgumentException(
+							"unknown motor '" + value + "', expected LIFT, CUBIE_DEPLOY, CUBIE_INTAKE or WINCH");
+				}
+			}
+
+			if (parameter.equals("path")) {
+				Integer pathNumber = pathNumbers.get(value);
+				if (pathNumber == null) {
+					throw new IllegalArgumentException("unknown path '" + value + "'");
+				}
+				return pathNumber;
+			}
+
+			double number;
+			try {
+				number = Double.parseDouble(value);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("'" + parameter + "' must be a number, not '" + value + "'");
+			}
+			if (Double.isNaN(number) || Double.isInfinite(number)) {
+				throw new IllegalArgumentException("'" + parameter + "' must be a number, not '" + value + "'");
+			}
+
+			double min = -Double.MAX_VALUE;
+			double max = Double.MAX_VALUE;
+			if (parameter.equals(TOLERANCE)) {
+				min = 0;
+				max = 180;
+			} else if (parameter.equals(ACCELERATION)) {
+				min = 0.1;
+				max = 100;
+			} else if (parameter.equals(LOOKAHEAD)) {
+				min = 0.1;
+				max = 5;
+			} else if (parameter.equals("turn") || (parameter.equals("speed") && type != AutonomousPlan.TYPE_LINEAR)) {
+				min = 0;
+				max = 1;
+			} else if (parameter.equals("speed")) {
+				min = -1;
+				max = 1;
+			}
+			if (number < min || number > max) {
+				throw new IllegalArgumentException("'" + parameter + "' must be between " + min + " and " + max);
+			}
+			return number;
+		}
+	}
+
+}
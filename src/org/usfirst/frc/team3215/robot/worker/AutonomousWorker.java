@@ -1,59 +1,126 @@
 package org.usfirst.frc.team3215.robot.worker;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 import org.usfirst.frc.team3215.robot.MotorHelper;
+import org.usfirst.frc.team3215.robot.config.AutonomousModes;
 import org.usfirst.frc.team3215.robot.config.RobotHardware;
+import org.usfirst.frc.team3215.robot.libraries.AnglesHelper;
 import org.usfirst.frc.team3215.robot.libraries.DiagnosticLightHelper;
 import org.usfirst.frc.team3215.robot.libraries.ExceptionHelper;
-
-import edu.wpi.first.wpilibj.DriverStation;
+import org.usfirst.frc.team3215.robot.libraries.PoseSnapshot;
 
 public class AutonomousWorker {
 
 	private final RobotHardware r;
 
-	private final static long DURATION_FOREVER = 36000000L; // ten hours
-	private final static int ACTION_HALT_AND_WAIT = 0; // reserved index
+	private final static int[] LINEAR_MOTORS = { MotorHelper.LIFT, MotorHelper.WINCH, MotorHelper.CUBIE_DEPLOY,
+			MotorHelper.CUBIE_INTAKE };
+
+	// all plans (see AutonomousPlans), and the one to execute; a plan is a series
+	// of actions
+	private AutonomousPlans plans;
+	private AutonomousPlan plan;
+
+	// the plan for every mode and game data, prepared before the match:
+	// [autonomous mode][game data index], see AutonomousPlans.getGameDataIndex
+	private AutonomousPlan[][] preparedPlans;
 
-	// a plan is a series of actions
-	private ArrayList<Action> plan;
+	// the game data as received while disabled (see pollGameData), or null
+	private String polledGameData = null;
 
-	// use if an action is a one-off (e.g. flipping an on/off switch)
-	private boolean stopCallingCurrentAction;
+	// the group of tracks being executed (see AutonomousPlan), and the action of
+	// each of its tracks (-1 once the track is done)
+	private int currentGroup;
+	private final int[] trackActions = new int[AutonomousPlan.MAX_TRACKS];
+	private final long[] trackStopTimes = new long[AutonomousPlan.MAX_TRACKS];
+	private final int[] trackSettledSamples = new int[AutonomousPlan.MAX_TRACKS]; // see isSettled
+	private final PathFollower pathFollower = new PathFollower(); // for the driving track
+	private final PoseSnapshot poseSnapshot = new PoseSnapshot();
+	private boolean finished;
 
+	// the most recently started action (for the black box)
 	private int currentActionNumber;
-	private long currentActionStopTime;
-	private Action currentAction;
+	private int currentActionType;
+
+	// when each action started and ended [ms since autonomousInit], or -1
+	private long startTime;
+	private long[] actionStartTimes = new long[0];
+	private long[] actionEndTimes = new long[0];
+
+	/**
+	 * Constructor - called during global init
+	 */
+	public AutonomousWorker(RobotHardware r) {
+		this.r = r;
+		r.log("AutonomousWorker() constructor");
+	}
 
 	/**
-	 * Autonomous executes a plan, which is a series of actions. This class defines
-	 * a single action.
+	 * Reads and compiles the plan file from the platform data directory (see
+	 * AutonomousPlans), and prepares the plan of every mode and game data. If
+	 * there is no plan file, or it has errors, uses the plans built into the robot
+	 * program. Call once, from robotInit.
 	 */
-	private class Action {
-
-		public final int type;
-		public final long duration;
-
-		/**
-		 * @param type
-		 *            A number indicating the type of action.
-		 * @param duration
-		 *            The duration in milliseconds for how this action takes.
-		 */
-		public Action(int type, long duration) {
-			this.type = type;
-			this.duration = duration;
+	public void loadPlans() {
+		plans = null;
+		if (r.platform().getDataDirectory() != null) {
+			Path file = Paths.get(r.platform().getDataDirectory(), AutonomousPlans.FILE_NAME);
+			try {
+				if (Files.exists(file)) {
+					plans = AutonomousPlans
+							.parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+					r.log("loaded autonomous plans from " + file + ": ", plans.size());
+				} else {
+					r.log("no autonomous plan file " + file + ", using the built-in plans");
+				}
+			} catch (IllegalArgumentException e) {
+				r.log("Warning: errors in " + file + ", using the built-in plans: " + e.getMessage());
+			} catch (IOException | RuntimeException e) {
+				r.log(ExceptionHelper.getString(e));
+			}
+		}
+		if (plans == null) {
+			plans = AutonomousPlans.getDefault();
 		}
 
+		AutonomousModes[] modes = AutonomousModes.values();
+		preparedPlans = new AutonomousPlan[modes.length][AutonomousPlans.GAME_DATA_COMBINATIONS];
+		int maxSize = 0;
+		for (int i = 0; i < modes.length; i++) {
+			int missing = 0;
+			for (int j = 0; j < AutonomousPlans.GAME_DATA_COMBINATIONS; j++) {
+				preparedPlans[i][j] = plans.select(modes[i], AutonomousPlans.getGameData(j));
+				if (preparedPlans[i][j] == null) {
+					preparedPlans[i][j] = AutonomousPlan.NONE;
+					missing++;
+				}
+				maxSize = Math.max(maxSize, preparedPlans[i][j].size());
+			}
+			if (missing > 0 && modes[i] != AutonomousModes.NOTHING) {
+				r.log("Warning: autonomous " + modes[i] + " has no plan for some game data: ", missing);
+			}
+		}
+		actionStartTimes = new long[maxSize];
+		actionEndTimes = new long[maxSize];
 	}
 
 	/**
-	 * Constructor - called during global init
+	 * Checks for the game data while the robot is disabled (call periodically),
+	 * so it's known before autonomous starts.
 	 */
-	public AutonomousWorker(RobotHardware r) {
-		this.r = r;
-		r.log("AutonomousWorker() constructor");
+	public void pollGameData() {
+		String gameData = r.gameSpecificMessage();
+		if (gameData == null || gameData.length() < 3 || gameData.equals(polledGameData)) {
+			return;
+		}
+		polledGameData = gameData;
+		r.log("game data received while disabled: " + gameData);
 	}
 
 	/**
@@ -69,9 +136,13 @@ public class AutonomousWorker {
 		// the switch our team owns ('L' means we own the left switch, 'R' means we own
 		// the right switch). The second character is which side of the scale we own.
 		// The third character is which side of the far switch we own ('L' or 'R').
-		String gameData = DriverStation.getInstance().getGameSpecificMessage();
+		String gameData = r.gameSpecificMessage();
 
 		// defensive coding: never trust remote inputs; make SURE it's three characters:
+		if ((gameData == null || gameData.length() < 3) && polledGameData != null) {
+			r.log("warning: game data is gone; using the game data received while disabled");
+			gameData = polledGameData;
+		}
 		if (gameData == null) {
 			r.log("warning: game data is null; forcing 'LLL' just so that autonomous doesn't crash");
 			gameData = "LLL";
@@ -84,142 +155,29 @@ public class AutonomousWorker {
 
 		// now that we are sure it's three characters, evaluate:
 		r.log("game data found: " + gameData);
-		boolean ourSwitchIsLeft = (gameData.charAt(0) == 'L');
-		boolean scaleIsLeft = (gameData.charAt(1) == 'L');
-		boolean theirSwitchIsLeft = (gameData.charAt(2) == 'L');
 
 		try {
 
-			// prepare a new plan (which is a series of actions)
-			plan = new ArrayList<Action>();
+			// pick the prepared plan (which is a series of actions)
+			currentGroup = -1;
+			Arrays.fill(trackActions, -1);
+			finished = false;
 			currentActionNumber = -1;
-			currentActionStopTime = 0;
-			currentAction = null;
-
-			// depending on which autonomous is selected, make a corresponding plan
-			switch (r.selectedAutonomous()) {
-
-			// --- when robot is standing on the LEFT side:
-			case LEFT_DRIVE_AND_DROP:
-				if (ourSwitchIsLeft) {
-					plan.add(new Action(1, 2000));
-					plan.add(new Action(15, 500));
-					plan.add(new Action(11, 500));
-					plan.add(new Action(21, 1000));
-					plan.add(new Action(10, 2000));
-				} else {
-					plan.add(new Action(0, 10000));
-					plan.add(new Action(1, 2000));
-				}
-				break; 
-				
-			case LEFT_DRIVE_FORWARD:
-				plan.add(new Action(0, 8000));
-				plan.add(new Action(18, 5000));
-				break;
-
-			// --- when robot is standing in the MIDDLE:
-			case MIDDLE_DRIVE_AND_DROP:
-				plan.add(new Action(1, 200));
-				if (ourSwitchIsLeft) {
-					plan.add(new Action(14, 2000));
-					plan.add(new Action(1, 800));
-					plan.add(new Action(15, 500));
-					plan.add(new Action(11, 500));
-					plan.add(new Action(21, 1000));
-					plan.add(new Action(10, 2000));
-				} else {
-					plan.add(new Action(13, 2000));
-					plan.add(new Action(1, 800));
-					plan.add(new Action(15, 500));
-					plan.add(new Action(11, 500));
-					plan.add(new Action(22, 1000));
-					plan.add(new Action(10, 2000));
-				}
-				break;
-
-			case MIDDLE_DRIVE_TO_LEFT:
-				plan.add(new Action(0, 5200));
-				plan.add(new Action(1, 200));
-				plan.add(new Action(5, 6000));
-				plan.add(new Action(20, 2400));
-				break;
-
-			case MIDDLE_DRIVE_TO_RIGHT:
-				plan.add(new Action(0, 6200));
-				plan.add(new Action(1, 200));
-				plan.add(new Action(6, 5000));
-				plan.add(new Action(20, 2300));
-				break;
-
-			// --- when robot is standing on the RIGHT side:
-			case RIGHT_DRIVE_AND_DROP:
-				if (ourSwitchIsLeft) {
-					plan.add(new Action(0, 10000));
-					plan.add(new Action(1, 2000));
-				} else {
-					plan.add(new Action(15, 500));
-					plan.add(new Action(11, 500));
-					plan.add(new Action(22, 1000));
-					plan.add(new Action(10, 2000));
-				}
-				break;
-
-			case RIGHT_DRIVE_FORWARD:
-				plan.add(new Action(0, 8000));
-				plan.add(new Action(19, 5000));
-				break;
-
-			// --- special functions:
-			case SELF_TEST:
-
-				// 2 second delay
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 2000));
-
-				plan.add(new Action(1, 1000));
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				plan.add(new Action(2, 1000));
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				plan.add(new Action(3, 1000));
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				plan.add(new Action(4, 1000));
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				plan.add(new Action(5, 1000));
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				plan.add(new Action(6, 1000));
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				plan.add(new Action(7, 1000));
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				plan.add(new Action(8, 1000));
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				plan.add(new Action(9, 1000));
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				plan.add(new Action(10, 1000));
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				plan.add(new Action(11, 1000));
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				plan.add(new Action(12, 1000));
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				plan.add(new Action(13, 1000));
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				plan.add(new Action(14, 1000));
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				plan.add(new Action(15, 1000));
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				plan.add(new Action(16, 1000));
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				plan.add(new Action(17, 100)); // just nick it (ratchet)
-				plan.add(new Action(ACTION_HALT_AND_WAIT, 1000));
-				break;
-
-			case NOTHING:
-				// do nothing at all
-				break;
-
-			default:
-				r.log("Warning: PANIC - unexpected autonomous: " + r.selectedAutonomous());
-				break;
+			currentActionType = -1;
+			startTime = r.timeMillis();
+			r.pose().reset();
+			Arrays.fill(actionStartTimes, -1);
+			Arrays.fill(actionEndTimes, -1);
+
+			if (preparedPlans == null) {
+				loadPlans();
+			}
+			AutonomousModes mode = r.selectedAutonomous();
+			plan = preparedPlans[mode.ordinal()][AutonomousPlans.getGameDataIndex(gameData)];
+			if (plan == AutonomousPlan.NONE && mode != AutonomousModes.NOTHING) {
+				r.log("Warning: PANIC - no plan for autonomous " + mode + " and game data " + gameData);
 			}
+			r.log("plan: " + plan.getName() + ", actions: ", plan.size());
 
 		} catch (Exception e) {
 			r.logOnce(ExceptionHelper.getString(e));
@@ -228,141 +186,54 @@ public class AutonomousWorker {
 	}
 
 	/**
-	 * Execute a given action type now.
+	 * Execute the current actions of all tracks now: the drive motors as the
+	 * driving track says (along its motion profile or path, if any), each linear
+	 * motor as the track using it says; all other motors halt.
 	 */
-	public void doAction(int type) {
-
-		r.logOnce("autonomous action type: " + type);
+	private void doActions(long nowTime) {
 
 		try {
 
-			switch (type) {
-
-			case ACTION_HALT_AND_WAIT: // halt all motors without jerking ("do nothing")
-				r.motors().haltAllMotorsPeriodic();
-				break;
-
-			case 1: // drive forward at 50% speed
-				r.motors().drive(0, 0.5, 0, 0.5);
-				r.motors().haltLinearMotorsPeriodic();
-				break;
-
-			case 2: // drive backwards at 50%
-				r.motors().drive(180, 0.5, 180, 0.5);
-				r.motors().haltLinearMotorsPeriodic();
-				break;
-
-			case 3: // drive right at 50%
-				r.motors().drive(270, 0.5, 270, 0.5);
-				r.motors().haltLinearMotorsPeriodic();
-				break;
-
-			case 4: // drive left at 50%
-				r.motors().drive(90, 0.5, 90, 0.5);
-				r.motors().haltLinearMotorsPeriodic();
-				break;
-
-			case 5: // point at 240 drive at 60 at 50%
-				r.motors().drive(60, 0.5, 240, 0.5);
-				r.motors().haltLinearMotorsPeriodic();
-				break;
-
-			case 6: // point at 120 drive at 300 at 50%
-				r.motors().drive(300, 0.5, 120, 0.5);
-				r.motors().haltLinearMotorsPeriodic();
-				break;
-
-			case 7: // point to 60 drive to 240 at 50%
-				r.motors().drive(240, 0.5, 60, 0.5);
-				r.motors().haltLinearMotorsPeriodic();
-				break;
-
-			case 8: // point to 300 drive to 120 at 50%
-				r.motors().drive(120, 0.5, 300, 0.5);
-				r.motors().haltLinearMotorsPeriodic();
-				break;
-
-			case 9: // cube in-take
-				r.motors().linearSingle(MotorHelper.CUBIE_INTAKE, -0.5);
-				r.motors().haltDriveMotorsPeriodic();
-				break;
-
-			case 10: // cube output
-				r.motors().linearSingle(MotorHelper.CUBIE_INTAKE, 0.5);
-				r.motors().haltDriveMotorsPeriodic();
-				break;
-
-			case 11: // lift up
-				r.motors().linearSingle(MotorHelper.LIFT, 0.5);
-				r.motors().haltDriveMotorsPeriodic();
-				break;
-
-			case 12: // lift down
-				r.motors().linearSingle(MotorHelper.LIFT, -0.5);
-				r.motors().haltDriveMotorsPeriodic();
-				break;
-
-			case 13: // point to 300 go to 300 50% speed
-				r.motors().drive(300, .5, 300, 0.5);
-				r.motors().haltLinearMotorsPeriodic();
-				break;
-
-			case 14: // point to 60 go to 60 50% speed
-				r.motors().drive(60, .5, 60, 0.5);
-				r.motors().haltLinearMotorsPeriodic();
-				break;
-
-			case 15: // extend cubie
-				r.motors().linearSingle(MotorHelper.CUBIE_DEPLOY, 0.5);
-				r.motors().haltDriveMotorsPeriodic();
-				break;
+			int[] types = plan.types;
+			double[] parameters = plan.parameters;
 
-			case 16: // retract cubie
-				r.motors().linearSingle(MotorHelper.CUBIE_DEPLOY, -0.5);
+			int driveAction = -1;
+			for (int track = 0; track < AutonomousPlan.MAX_TRACKS; track++) {
+				int action = trackActions[track];
+				if (action >= 0
+						&& (types[action] == AutonomousPlan.TYPE_DRIVE || types[action] == AutonomousPlan.TYPE_FOLLOW)) {
+					driveAction = action;
+				}
+			}
+			if (driveAction >= 0 && types[driveAction] == AutonomousPlan.TYPE_FOLLOW) {
+				int offset = driveAction * AutonomousPlan.PARAMETERS;
+				r.pose().readSnapshot(poseSnapshot);
+				pathFollower.update(poseSnapshot.x, poseSnapshot.y);
+				r.motors().drive(pathFollower.getDirection(), pathFollower.getSpeed(parameters[offset + 1]),
+						pathFollower.getOrientation(), parameters[offset + 3]);
+			} else if (driveAction >= 0 && plan.hasProfile(driveAction)) {
+				int offset = driveAction * AutonomousPlan.PARAMETERS;
+				long time = nowTime - startTime - actionStartTimes[driveAction];
+				r.motors().drive(parameters[offset], plan.getProfileSpeed(driveAction, time),
+						plan.getProfileOrientation(driveAction, time), parameters[offset + 3]);
+			} else if (driveAction >= 0) {
+				int offset = driveAction * AutonomousPlan.PARAMETERS;
+				r.motors().drive(parameters[offset], parameters[offset + 1], parameters[offset + 2],
+						parameters[offset + 3]);
+			} else {
 				r.motors().haltDriveMotorsPeriodic();
-				break;
+			}
 
-			case 17: // power winch
-				r.motors().linearSingle(MotorHelper.WINCH, 1.0);
-				r.motors().haltDriveMotorsPeriodic();
-				break;
-
-			case 18: // point to 10 drive to 10 at 50%
-				r.motors().drive(10, 0.5, 10, 0.5);
-				r.motors().haltLinearMotorsPeriodic();
-				break;
-
-			case 19: // point to 350 drive to 350 at 50%
-				r.motors().drive(350, 0.5, 350, 0.5);
-				r.motors().haltLinearMotorsPeriodic();
-				break;
-
-			case 20: // point to 180 drive to 0 at 50%
-				r.motors().drive(0, 0.5, 180, 0.5);
-				r.motors().haltLinearMotorsPeriodic();
-				break;
-
-			case 21: // point to 270 at 30% drive to 270 at 20%
-				r.motors().drive(270, 0.20, 270, 0.30);
-				r.motors().haltLinearMotorsPeriodic();
-				break;
-
-			case 22: // point to 90 at 30% drive to 90 at 20%
-				r.motors().drive(90, 0.20, 90, 0.30);
-				r.motors().haltLinearMotorsPeriodic();
-				break;
-
-			/*
-			 * Example of an action that is only to be executed once:
-			 * 
-			 * case 123456: r.flipSomeSwitch(true); stopCallingCurrentAction = true; break;
-			 * 
-			 * This action will be called exactly once, and then it'll still wait for the
-			 * specified duration until the next action is called.
-			 */
-
-			default:
-				r.logOnce("Warning: Unknown action type " + type + " called in autonomous");
+			for (int motor : LINEAR_MOTORS) {
+				double speed = 0;
+				for (int track = 0; track < AutonomousPlan.MAX_TRACKS; track++) {
+					int action = trackActions[track];
+					if (action >= 0 && types[action] == AutonomousPlan.TYPE_LINEAR
+							&& (int) parameters[action * AutonomousPlan.PARAMETERS] == motor) {
+						speed = parameters[action * AutonomousPlan.PARAMETERS + 1];
+					}
+				}
+				r.motors().linear(motor, speed);
 			}
 
 		} catch (Exception e) {
@@ -378,31 +249,44 @@ public class AutonomousWorker {
 
 		try {
 
-			long nowTime = System.currentTimeMillis();
-
-			if (nowTime >= currentActionStopTime) {
-				currentActionNumber++;
-				r.setDiagnosticLights(currentActionNumber, 1); // short = action number, long = 1
+			long nowTime = r.timeMillis();
+
+			// move each track on whose action is over
+			boolean running = false;
+			for (int track = 0; track < AutonomousPlan.MAX_TRACKS; track++) {
+				int action = trackActions[track];
+				if (action >= 0 && (nowTime >= trackStopTimes[track] || isSettled(track, action))) {
+					actionEndTimes[action] = nowTime - startTime;
+					action = plan.nextActions[action];
+					trackActions[track] = action;
+					if (action >= 0) {
+						startAction(track, action, nowTime);
+					}
+				}
+				running |= (action >= 0);
+			}
 
-				if (currentActionNumber >= plan.size()) {
-					currentAction = new Action(0, DURATION_FOREVER);
+			// once all tracks are done, start the next group
+			if (!running && !finished) {
+				currentGroup++;
+				if (currentGroup >= plan.getGroupCount()) {
+					finished = true;
+					currentActionNumber = plan.size();
+					currentActionType = AutonomousPlan.TYPE_HALT;
 					r.log("Autonomous finished, robot halt.");
 					r.setDiagnosticLights(0, 2); // autonomous done
 				} else {
-					currentAction = plan.get(currentActionNumber);
-					r.log("advance plan to action #" + currentActionNumber + ": " + "type " + currentAction.type
-							+ " for " + currentAction.duration + " milliseconds");
+					for (int track = 0; track < AutonomousPlan.MAX_TRACKS; track++) {
+						int action = plan.firstActions[currentGroup * AutonomousPlan.MAX_TRACKS + track];
+						trackActions[track] = action;
+						if (action >= 0) {
+							startAction(track, action, nowTime);
+						}
+					}
 				}
-
-				currentActionStopTime = nowTime + currentAction.duration;
-
-				// reset on-time flag
-				stopCallingCurrentAction = false;
 			}
 
-			if (!stopCallingCurrentAction) {
-				doAction(currentAction.type);
-			}
+			doActions(nowTime);
 
 		} catch (Exception e) {
 			r.logOnce(ExceptionHelper.getString(e));
@@ -410,4 +294,87 @@ public class AutonomousWorker {
 
 	}
 
+	/**
+	 * Whether the given action of the given track has met its condition (see
+	 * AutonomousPlan.UNTIL_...); call once per frame.
+	 */
+	private boolean isSettled(int track, int action) {
+		if (plan.untilConditions[action] == AutonomousPlan.UNTIL_ARRIVED) {
+			if (pathFollower.isArrived()) {
+				r.log("arrived at the end of the path, action done: #", action);
+				return true;
+			}
+			return false;
+		}
+		if (plan.untilConditions[action] != AutonomousPlan.UNTIL_HEADING) {
+			return false;
+		}
+		double orientation = plan.parameters[action * AutonomousPlan.PARAMETERS + 2];
+		double headingError = AnglesHelper.getAngleDifference(r.imu().getHeadingBestTwoOfThree(), orientation);
+		if (Math.abs(headingError) <= plan.tolerances[action]) {
+			trackSettledSamples[track]++;
+		} else {
+			trackSettledSamples[track] = 0;
+		}
+		if (trackSettledSamples[track] >= plan.samples[action]) {
+			r.log("heading settled, action done early: #", action);
+			return true;
+		}
+		return false;
+	}
+
+	private void startAction(int track, int action, long nowTime) {
+		trackStopTimes[track] = nowTime + plan.durations[action];
+		trackSettledSamples[track] = 0;
+		if (plan.types[action] == AutonomousPlan.TYPE_FOLLOW) {
+			int offset = action * AutonomousPlan.PARAMETERS;
+			pathFollower.start(plan.getPath((int) plan.parameters[offset]), r.imu().getHeadingBestTwoOfThree(),
+					plan.parameters[offset + 2]);
+		}
+		actionStartTimes[action] = nowTime - startTime;
+		currentActionNumber = action;
+		currentActionType = plan.types[action];
+		r.setDiagnosticLights(action, 1); // short = action number, long = 1
+		r.log("advance plan to action #", action);
+	}
+
+	/**
+	 * The plan picked by the most recent init(), or null.
+	 */
+	public AutonomousPlan getPlan() {
+		return plan;
+	}
+
+	/**
+	 * When the given action of the plan started, in milliseconds since init(), or
+	 * -1 if it hasn't.
+	 */
+	public long getActionStartTime(int action) {
+		return actionStartTimes[action];
+	}
+
+	/**
+	 * When the given action of the plan ended, in milliseconds since init(), or -1
+	 * if it hasn't.
+	 */
+	public long getActionEndTime(int action) {
+		return actionEndTimes[action];
+	}
+
+	/**
+	 * Number of the most recently started action, plan.size() once the plan is
+	 * done, or -1 if none.
+	 */
+	public int getCurrentActionNumber() {
+		return currentActionType < 0 ? -1 : currentActionNumber;
+	}
+
+	/**
+	 * Type of the most recently started action (see AutonomousPlan.TYPE_...), or
+	 * -1 if none.
+	 */
+	public int getCurrentActionType() {
+		return currentActionType;
+	}
+
 }
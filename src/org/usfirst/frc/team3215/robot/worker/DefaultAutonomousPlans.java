@@ -0,0 +1,146 @@
+package org.usfirst.frc.team3215.robot.worker;
+
+/**
+ * The plan file built into the robot program (see AutonomousPlans), used when
+ * there is no plan file on the robot, or it has errors.
+ */
+final class DefaultAutonomousPlans {
+
+	static final String TEXT = ""
+			+ "# Autonomous plans (see AutonomousPlans for the format). Copy this file to\n"
+			+ "# /home/lvuser/autonomous.txt on the robot and edit it there; it is read at\n"
+			+ "# robot program start, and the built-in plans are used if it has errors.\n"
+			+ "\n"
+			+ "action forward drive direction=0 speed=0.5 orientation=0 turn=0.5\n"
+			+ "action backward drive direction=180 speed=0.5 orientation=180 turn=0.5\n"
+			+ "action strafeRight drive direction=270 speed=0.5 orientation=270 turn=0.5\n"
+			+ "action strafeLeft drive direction=90 speed=0.5 orientation=90 turn=0.5\n"
+			+ "action creepRight drive direction=270 speed=0.2 orientation=270 turn=0.3\n"
+			+ "action creepLeft drive direction=90 speed=0.2 orientation=90 turn=0.3\n"
+			+ "action cubeIntake linear motor=CUBIE_INTAKE speed=-0.5\n"
+			+ "action cubeOutput linear motor=CUBIE_INTAKE speed=0.5\n"
+			+ "action liftUp linear motor=LIFT speed=0.5\n"
+			+ "action liftDown linear motor=LIFT speed=-0.5\n"
+			+ "action extendCubie linear motor=CUBIE_DEPLOY speed=0.5\n"
+			+ "action retractCubie linear motor=CUBIE_DEPLOY speed=-0.5\n"
+			+ "action powerWinch linear motor=WINCH speed=1.0\n"
+			+ "\n"
+			+ "# --- when robot is standing on the LEFT side:\n"
+			+ "plan LEFT_DRIVE_AND_DROP switch=L\n"
+			+ "\tparallel # get the cube ready while driving to the switch\n"
+			+ "\ttrack\n"
+			+ "\t\tforward duration=2000\n"
+			+ "\ttrack\n"
+			+ "\t\textendCubie duration=500\n"
+			+ "\t\tliftUp duration=500\n"
+			+ "\tjoin\n"
+			+ "\tcreepRight duration=1000\n"
+			+ "\tcubeOutput duration=2000\n"
+			+ "\n"
+			+ "plan LEFT_DRIVE_AND_DROP switch=R\n"
+			+ "\thalt duration=10000\n"
+			+ "\tforward duration=2000\n"
+			+ "\n"
+			+ "plan LEFT_DRIVE_FORWARD\n"
+			+ "\thalt duration=8000\n"
+			+ "\tdrive direction=10 speed=0.5 orientation=10 turn=0.5 duration=5000\n"
+			+ "\n"
+			+ "# --- when robot is standing in the MIDDLE:\n"
+			+ "plan MIDDLE_DRIVE_AND_DROP switch=L\n"
+			+ "\tforward duration=200\n"
+			+ "\tparallel\n"
+			+ "\ttrack\n"
+			+ "\t\tdrive direction=60 speed=0.5 orientation=60 turn=0.5 duration=2000\n"
+			+ "\t\tforward duration=800\n"
+			+ "\ttrack\n"
+			+ "\t\textendCubie duration=500\n"
+			+ "\t\tliftUp duration=500\n"
+			+ "\tjoin\n"
+			+ "\tcreepRight duration=1000\n"
+			+ "\tcubeOutput duration=2000\n"
+			+ "\n"
+			+ "plan MIDDLE_DRIVE_AND_DROP switch=R\n"
+			+ "\tforward duration=200\n"
+			+ "\tparallel\n"
+			+ "\ttrack\n"
+			+ "\t\tdrive direction=300 speed=0.5 orientation=300 turn=0.5 duration=2000\n"
+			+ "\t\tforward duration=800\n"
+			+ "\ttrack\n"
+			+ "\t\textendCubie duration=500\n"
+			+ "\t\tliftUp duration=500\n"
+			+ "\tjoin\n"
+			+ "\tcreepLeft duration=1000\n"
+			+ "\tcubeOutput duration=2000\n"
+			+ "\n"
+			+ "# around the switch, turning to face back on the way\n"
+			+ "path aroundSwitchLeft lookahead=0.6 0,0 0.3,0 2,3.3 3.6,6 4.8,6.6 7.5,6.6\n"
+			+ "path aroundSwitchRight lookahead=0.6 0,0 0.3,0 1.8,-2.9 3.1,-5 4.2,-5.4 6.6,-5.4\n"
+			+ "\n"
+			+ "plan MIDDLE_DRIVE_TO_LEFT\n"
+			+ "\thalt duration=5200\n"
+			+ "\tfollow path=aroundSwitchLeft speed=0.6 orientation=180 turn=0.5 duration=8600\n"
+			+ "\n"
+			+ "plan MIDDLE_DRIVE_TO_RIGHT\n"
+			+ "\thalt duration=6200\n"
+			+ "\tfollow path=aroundSwitchRight speed=0.6 orientation=180 turn=0.5 duration=7500\n"
+			+ "\n"
+			+ "# --- when robot is standing on the RIGHT side:\n"
+			+ "plan RIGHT_DRIVE_AND_DROP switch=L\n"
+			+ "\thalt duration=10000\n"
+			+ "\tforward duration=2000\n"
+			+ "\n"
+			+ "plan RIGHT_DRIVE_AND_DROP switch=R\n"
+			+ "\textendCubie duration=500\n"
+			+ "\tliftUp duration=500\n"
+			+ "\tcreepLeft duration=1000\n"
+			+ "\tcubeOutput duration=2000\n"
+			+ "\n"
+			+ "plan RIGHT_DRIVE_FORWARD\n"
+			+ "\thalt duration=8000\n"
+			+ "\tdrive direction=350 speed=0.5 orientation=350 turn=0.5 duration=5000\n"
+			+ "\n"
+			+ "# --- special functions:\n"
+			+ "plan SELF_TEST\n"
+			+ "\thalt duration=2000\n"
+			+ "\tforward duration=1000\n"
+			+ "\thalt duration=1000\n"
+			+ "\tbackward duration=1000\n"
+			+ "\thalt duration=1000\n"
+			+ "\tstrafeRight duration=1000\n"
+			+ "\thalt duration=1000\n"
+			+ "\tstrafeLeft duration=1000\n"
+			+ "\thalt duration=1000\n"
+			+ "\tdrive direction=60 speed=0.5 orientation=240 turn=0.5 duration=1000\n"
+			+ "\thalt duration=1000\n"
+			+ "\tdrive direction=300 speed=0.5 orientation=120 turn=0.5 duration=1000\n"
+			+ "\thalt duration=1000\n"
+			+ "\tdrive direction=240 speed=0.5 orientation=60 turn=0.5 duration=1000\n"
+			+ "\thalt duration=1000\n"
+			+ "\tdrive direction=120 speed=0.5 orientation=300 turn=0.5 duration=1000\n"
+			+ "\thalt duration=1000\n"
+			+ "\tcubeIntake duration=1000\n"
+			+ "\thalt duration=1000\n"
+			+ "\tcubeOutput duration=1000\n"
+			+ "\thalt duration=1000\n"
+			+ "\tliftUp duration=1000\n"
+			+ "\thalt duration=1000\n"
+			+ "\tliftDown duration=1000\n"
+			+ "\thalt duration=1000\n"
+			+ "\tdrive direction=300 speed=0.5 orientation=300 turn=0.5 duration=1000\n"
+			+ "\thalt duration=1000\n"
+			+ "\tdrive direction=60 speed=0.5 orientation=60 turn=0.5 duration=1000\n"
+			+ "\thalt duration=1000\n"
+			+ "\textendCubie duration=1000\n"
+			+ "\thalt duration=1000\n"
+			+ "\tretractCubie duration=1000\n"
+			+ "\thalt duration=1000\n"
+			+ "\tpowerWinch duration=100 # just nick it (ratchet)\n"
+			+ "\thalt duration=1000\n"
+			+ "\n"
+			+ "plan NOTHING\n"
+			+ "\t# do nothing at all\n";
+
+	private DefaultAutonomousPlans() {
+	}
+
+}
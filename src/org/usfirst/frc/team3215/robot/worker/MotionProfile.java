@@ -0,0 +1,94 @@
+package org.usfirst.frc.team3215.robot.worker;
+
+import org.usfirst.frc.team3215.robot.libraries.AnglesHelper;
+
+/**
+ * Motion profiles for drive actions, computed when plans are compiled: the
+ * drive speed ramps up from 0 to the action's speed and back down to 0 at the
+ * end of the action, and the orientation moves from the previous drive action's
+ * orientation to this one's along with the distance driven. The setpoints are
+ * sampled every PERIOD milliseconds, so executing a profile only looks them up
+ * (see AutonomousPlan.getProfileSpeed).
+ * <p>
+ * TRAPEZOID ramps the speed at a constant acceleration. S_CURVE ramps it along
+ * a smooth curve (3u^2 - 2u^3), so the acceleration has no steps either, which
+ * is kinder to the wheels and the lift; its ramps take 1.5 times as long for
+ * the same peak acceleration. If the action is too short to reach its speed,
+ * the peak speed is lowered.
+ */
+public class MotionProfile {
+
+	public final static int NONE = 0;
+	public final static int TRAPEZOID = 1;
+	public final static int S_CURVE = 2;
+
+	public final static long PERIOD = 20; // [ms] between samples, one robot frame
+
+	/**
+	 * Number of samples of a profile of the given duration (both ends included).
+	 */
+	public static int getSampleCount(long duration) {
+		return (int) ((duration + PERIOD - 1) / PERIOD) + 1;
+	}
+
+	/**
+	 * Samples a profile into the given arrays, from the given offset on
+	 * (getSampleCount samples).
+	 *
+	 * @param shape
+	 *            TRAPEZOID or S_CURVE.
+	 * @param speed
+	 *            The peak drive speed (0 to 1).
+	 * @param acceleration
+	 *            The peak acceleration, in drive speed per second (e.g. 2 reaches
+	 *            full speed in half a second).
+	 * @param duration
+	 *            How long the profile takes [ms].
+	 * @param fromOrientation
+	 *            The orientation at the start [degrees].
+	 * @param toOrientation
+	 *            The orientation at the end [degrees].
+	 */
+	public static void sample(int shape, double speed, double acceleration, long duration, double fromOrientation,
+			double toOrientation, double[] speeds, double[] orientations, int offset) {
+		int count = getSampleCount(duration);
+		double seconds = duration / 1000.;
+
+		// ramp time, lowered along with the peak speed if there's no time to reach
+		// it; a turn on the spot (speed 0) turns along the ramps of full speed
+		double rampFactor = (shape == S_CURVE) ? 1.5 : 1.;
+		double rampTime = rampFactor * ((speed > 0) ? speed : 1.) / acceleration;
+		double peakSpeed = speed;
+		if (2 * rampTime > seconds) {
+			peakSpeed = speed * seconds / (2 * rampTime);
+			rampTime = seconds / 2;
+		}
+
+		// speeds, and the distance driven as a share of the whole (in orientations
+		// for now)
+		double distance = 0;
+		double previousRamp = 0;
+		for (int i = 0; i < count; i++) {
+			double time = Math.min(i * PERIOD / 1000., seconds);
+			double ramp = (rampTime > 0) ? Math.min(1., Math.min(time, seconds - time) / rampTime) : 1.;
+			if (shape == S_CURVE) {
+				ramp = ramp * ramp * (3 - 2 * ramp);
+			}
+			speeds[offset + i] = peakSpeed * ramp;
+			if (i > 0) {
+				distance += previousRamp + ramp;
+			}
+			orientations[offset + i] = distance;
+			previousRamp = ramp;
+		}
+
+		// orientations, along with the distance driven
+		double turn = AnglesHelper.getAngleDifference(fromOrientation, toOrientation);
+		for (int i = 0; i < count - 1; i++) {
+			double progress = (distance > 0) ? orientations[offset + i] / distance : (double) i / (count - 1);
+			orientations[offset + i] = AnglesHelper.getPlainAngle(fromOrientation + turn * progress);
+		}
+		orientations[offset + count - 1] = toOrientation;
+	}
+
+}
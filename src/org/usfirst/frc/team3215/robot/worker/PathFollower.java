@@ -0,0 +1,117 @@
+package org.usfirst.frc.team3215.robot.worker;
+
+import org.usfirst.frc.team3215.robot.libraries.AnglesHelper;
+
+/**
+ * Pure pursuit for a mecanum drive: each frame, finds the point of the path
+ * closest to the robot (only ever moving on), and drives towards the point one
+ * lookahead further along the path. As the drive is field oriented, the
+ * orientation is independent of the direction of travel; it turns from the
+ * heading at the start to the target orientation along with the distance
+ * covered. The speed goes down towards the end of the path. No allocation per
+ * frame.
+ */
+public class PathFollower {
+
+	public final static double ARRIVAL_DISTANCE = 0.1; // [m] from the end of the path counts as arrived
+	private final static double SLOWDOWN_DISTANCE = 0.75; // [m] before the end of the path
+	private final static double MIN_SPEED = 0.15; // while slowing down
+	private final static double SEARCH_DISTANCE = 1.; // [m] ahead of the closest point, for the next one
+
+	private WaypointPath path = null;
+	private double fromOrientation;
+	private double turn; // [degrees] from fromOrientation to the target orientation
+	private int closest;
+
+	// results of the most recent update()
+	private double direction;
+	private double orientation;
+	private double remainingDistance;
+	private double endDistance;
+
+	/**
+	 * Starts following the given path.
+	 *
+	 * @param heading
+	 *            The robot's heading now [degrees].
+	 * @param orientation
+	 *            The orientation to reach by the end of the path [degrees].
+	 */
+	public void start(WaypointPath path, double heading, double orientation) {
+		this.path = path;
+		fromOrientation = heading;
+		turn = AnglesHelper.getAngleDifference(heading, orientation);
+		closest = 0;
+		this.orientation = heading;
+		direction = 0;
+		remainingDistance = path.getLength();
+		endDistance = path.getLength();
+	}
+
+	/**
+	 * Works out where to go from the given position [m] (see getDirection,
+	 * getSpeed and getOrientation). Call once per frame, after start().
+	 */
+	public void update(double x, double y) {
+		double[] xs = path.xs;
+		double[] ys = path.ys;
+		double[] distances = path.distances;
+		int last = xs.length - 1;
+
+		// closest point, searching ahead of the previous one
+		double closestDistance = Double.MAX_VALUE;
+		int from = closest;
+		for (int i = from; i <= last && distances[i] <= distances[from] + SEARCH_DISTANCE; i++) {
+			double distance = Math.hypot(xs[i] - x, ys[i] - y);
+			if (distance < closestDistance) {
+				closestDistance = distance;
+				closest = i;
+			}
+		}
+
+		// point to aim at
+		int target = closest;
+		double targetDistance = distances[closest] + path.getLookahead();
+		while (target < last && distances[target] < targetDistance) {
+			target++;
+		}
+
+		direction = Math.toDegrees(Math.atan2(ys[target] - y, xs[target] - x));
+		endDistance = Math.hypot(xs[last] - x, ys[last] - y);
+		remainingDistance = Math.max(path.getLength() - distances[closest], endDistance);
+		double progress = (path.getLength() > 0) ? distances[closest] / path.getLength() : 1.;
+		orientation = AnglesHelper.getPlainAngle(fromOrientation + turn * progress);
+	}
+
+	/**
+	 * Field direction in which to drive [degrees], see MotorHelper.drive.
+	 */
+	public double getDirection() {
+		return direction;
+	}
+
+	/**
+	 * The given top speed, reduced towards the end of the path.
+	 */
+	public double getSpeed(double speed) {
+		if (remainingDistance >= SLOWDOWN_DISTANCE) {
+			return speed;
+		}
+		return Math.min(speed, Math.max(MIN_SPEED, speed * remainingDistance / SLOWDOWN_DISTANCE));
+	}
+
+	/**
+	 * Orientation to aim for now [degrees].
+	 */
+	public double getOrientation() {
+		return orientation;
+	}
+
+	/**
+	 * Whether the robot has reached the end of the path.
+	 */
+	public boolean isArrived() {
+		return path != null && endDistance < ARRIVAL_DISTANCE;
+	}
+
+}
@@ -0,0 +1,85 @@
+package org.usfirst.frc.team3215.robot.worker;
+
+/**
+ * A path through waypoints on the field (see PoseEstimator for the
+ * coordinates), for PathFollower. The straight lines between the waypoints are
+ * cut into points SPACING apart when the plan file is compiled, each with the
+ * distance along the path to it, so following the path only steps through
+ * these arrays. Immutable.
+ */
+public class WaypointPath {
+
+	public final static double SPACING = 0.05; // [m] between points
+
+	private final String name;
+	private final double lookahead; // [m]
+	final double[] xs; // [m]
+	final double[] ys; // [m]
+	final double[] distances; // [m] along the path, from its start
+
+	/**
+	 * @param waypoints
+	 *            x and y of each waypoint, in turn [m]; at least two waypoints.
+	 * @param lookahead
+	 *            How far ahead on the path to aim [m] (see PathFollower).
+	 */
+	WaypointPath(String name, double[] waypoints, double lookahead) {
+		this.name = name;
+		this.lookahead = lookahead;
+
+		int count = 1;
+		for (int i = 2; i < waypoints.length; i += 2) {
+			count += getSteps(waypoints, i);
+		}
+		xs = new double[count];
+		ys = new double[count];
+		distances = new double[count];
+
+		xs[0] = waypoints[0];
+		ys[0] = waypoints[1];
+		int point = 1;
+		for (int i = 2; i < waypoints.length; i += 2) {
+			int steps = getSteps(waypoints, i);
+			for (int step = 1; step <= steps; step++) {
+				double share = (double) step / steps;
+				xs[point] = waypoints[i - 2] + (waypoints[i] - waypoints[i - 2]) * share;
+				ys[point] = waypoints[i - 1] + (waypoints[i + 1] - waypoints[i - 1]) * share;
+				distances[point] = distances[point - 1]
+						+ Math.hypot(xs[point] - xs[point - 1], ys[point] - ys[point - 1]);
+				point++;
+			}
+		}
+	}
+
+	/**
+	 * Number of points between the waypoint before the given one and the given
+	 * one (at least 1).
+	 */
+	private static int getSteps(double[] waypoints, int i) {
+		double length = Math.hypot(waypoints[i] - waypoints[i - 2], waypoints[i + 1] - waypoints[i - 1]);
+		return Math.max(1, (int) Math.ceil(length / SPACING));
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public double getLookahead() {
+		return lookahead;
+	}
+
+	/**
+	 * Number of points.
+	 */
+	public int size() {
+		return xs.length;
+	}
+
+	/**
+	 * Length of the path [m].
+	 */
+	public double getLength() {
+		return distances[distances.length - 1];
+	}
+
+}